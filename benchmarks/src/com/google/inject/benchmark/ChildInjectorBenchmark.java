@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating child injectors with a handful of bindings, such as a child injector per
+ * request or per tenant, and using them once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChildInjectorBenchmark {
+
+  private Injector parent;
+
+  @Setup
+  public void setUp() {
+    parent = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(Service.class).to(ServiceImpl.class);
+      }
+    });
+    parent.getInstance(Service.class);
+  }
+
+  @Benchmark
+  public Injector createEmptyChild() {
+    return parent.createChildInjector();
+  }
+
+  @Benchmark
+  public Injector createChild() {
+    return parent.createChildInjector(new RequestModule(new Request()));
+  }
+
+  @Benchmark
+  public Handler createChildAndGetInstance() {
+    return parent.createChildInjector(new RequestModule(new Request())).getInstance(Handler.class);
+  }
+
+  /** A handful of instance and linked bindings. */
+  static class RequestModule extends AbstractModule {
+    private final Request request;
+
+    RequestModule(Request request) {
+      this.request = request;
+    }
+
+    @Override protected void configure() {
+      bind(Request.class).toInstance(request);
+      bindConstant().annotatedWith(Names.named("user")).to("alice");
+      bind(Handler.class).to(HandlerImpl.class);
+    }
+  }
+
+  public static class Request {}
+
+  public interface Service {}
+
+  @Singleton
+  public static class ServiceImpl implements Service {}
+
+  public interface Handler {}
+
+  public static class HandlerImpl implements Handler {
+    @Inject HandlerImpl(Request request, Service service) {}
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the Guice benchmarks in one of several modes:
+ * <ul>
+ *   <li>{@code single}: one benchmark thread. This is the default.
+ *   <li>{@code contended}: one benchmark thread per available processor (but at least
+ *       {@value #MIN_CONTENDED_THREADS}), all sharing the same injector. Use this to find lock
+ *       contention in the provisioning path.
+ *   <li>{@code gc}: one benchmark thread with the GC profiler attached, which reports the bytes
+ *       allocated per operation.
+ * </ul>
+ *
+ * <p>Any further arguments are regular expressions selecting the benchmarks to run, for example
+ * {@code java -jar benchmarks.jar gc ProvisionBenchmark.cachedProvider}. For finer control, the
+ * standard JMH command line is available through {@code org.openjdk.jmh.Main}.
+ */
+public class GuiceBenchmarks {
+
+  enum Mode {
+    SINGLE, CONTENDED, GC
+  }
+
+  static final int MIN_CONTENDED_THREADS = 4;
+
+  public static void main(String[] args) throws RunnerException {
+    List<String> arguments = Arrays.asList(args);
+    Mode mode = Mode.SINGLE;
+    if (!arguments.isEmpty() && isMode(arguments.get(0))) {
+      mode = Mode.valueOf(arguments.get(0).toUpperCase());
+      arguments = arguments.subList(1, arguments.size());
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder();
+    if (arguments.isEmpty()) {
+      options.include(GuiceBenchmarks.class.getPackage().getName() + ".*");
+    } else {
+      for (String include : arguments) {
+        options.include(include);
+      }
+    }
+
+    switch (mode) {
+      case SINGLE:
+        options.threads(1);
+        break;
+      case CONTENDED:
+        options.threads(
+            Math.max(MIN_CONTENDED_THREADS, Runtime.getRuntime().availableProcessors()));
+        break;
+      case GC:
+        options.threads(1).addProfiler(GCProfiler.class);
+        break;
+      default:
+        throw new AssertionError(mode);
+    }
+
+    new Runner(options.build()).run();
+  }
+
+  private static boolean isMode(String argument) {
+    for (Mode mode : Mode.values()) {
+      if (mode.name().equalsIgnoreCase(argument)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups of just-in-time bindings that already exist. These are the common case once an
+ * application has warmed up; run with {@code contended} to see how well they scale across threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JitBindingBenchmark {
+
+  static final Key<Leaf> LEAF_KEY = Key.get(Leaf.class);
+
+  private Injector injector;
+  private Injector grandchildInjector;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector();
+    injector.getInstance(Leaf.class);
+    grandchildInjector = injector
+        .createChildInjector(new AbstractModule() {
+          @Override protected void configure() {}
+        })
+        .createChildInjector(new AbstractModule() {
+          @Override protected void configure() {}
+        });
+  }
+
+  @Benchmark
+  public Binding<Leaf> getExistingBinding() {
+    return injector.getExistingBinding(LEAF_KEY);
+  }
+
+  @Benchmark
+  public Binding<Leaf> getBinding() {
+    return injector.getBinding(LEAF_KEY);
+  }
+
+  /** Walks two child injectors to find the JIT binding in their root. */
+  @Benchmark
+  public Binding<Leaf> getBindingFromGrandchild() {
+    return grandchildInjector.getBinding(LEAF_KEY);
+  }
+
+  @Benchmark
+  public Leaf getInstance() {
+    return injector.getInstance(LEAF_KEY);
+  }
+
+  public static class Leaf {}
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.MembersInjector;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Scopes;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the provisioning hot paths of an already-built injector. All benchmarks share one
+ * injector, so running them with several threads measures contention on the injector's internal
+ * state as well as raw provisioning cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProvisionBenchmark {
+
+  private Injector injector;
+  private Provider<Leaf> unscopedProvider;
+  private Provider<SingletonLeaf> singletonProvider;
+  private Provider<Service> linkedProvider;
+  private Provider<Tree> treeProvider;
+  private MembersInjector<Injectable> membersInjector;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector(new BenchmarkModule());
+    unscopedProvider = injector.getProvider(Leaf.class);
+    singletonProvider = injector.getProvider(SingletonLeaf.class);
+    linkedProvider = injector.getProvider(Service.class);
+    treeProvider = injector.getProvider(Tree.class);
+    membersInjector = injector.getMembersInjector(Injectable.class);
+  }
+
+  @Benchmark
+  public Leaf getInstanceUnscoped() {
+    return injector.getInstance(Leaf.class);
+  }
+
+  @Benchmark
+  public SingletonLeaf getInstanceSingleton() {
+    return injector.getInstance(SingletonLeaf.class);
+  }
+
+  @Benchmark
+  public Tree getInstanceTree() {
+    return injector.getInstance(Tree.class);
+  }
+
+  @Benchmark
+  public Leaf cachedProviderUnscoped() {
+    return unscopedProvider.get();
+  }
+
+  @Benchmark
+  public SingletonLeaf cachedProviderSingleton() {
+    return singletonProvider.get();
+  }
+
+  @Benchmark
+  public Tree cachedProviderTree() {
+    return treeProvider.get();
+  }
+
+  @Benchmark
+  public Service linkedBinding() {
+    return linkedProvider.get();
+  }
+
+  /** Public {@code @Provides} methods are invoked through a cglib FastClass. */
+  @Benchmark
+  public String providesMethodFastClass() {
+    return injector.getInstance(FAST_CLASS_KEY);
+  }
+
+  /** Private {@code @Provides} methods are invoked through plain reflection. */
+  @Benchmark
+  public String providesMethodReflection() {
+    return injector.getInstance(REFLECTION_KEY);
+  }
+
+  @Benchmark
+  public Injectable injectMembers() {
+    Injectable injectable = new Injectable();
+    membersInjector.injectMembers(injectable);
+    return injectable;
+  }
+
+  @Benchmark
+  public Chicken circularProxy() {
+    return injector.getInstance(Chicken.class);
+  }
+
+  static final Key<String> FAST_CLASS_KEY = Key.get(String.class, Names.named("fastClass"));
+  static final Key<String> REFLECTION_KEY = Key.get(String.class, Names.named("reflection"));
+
+  static class BenchmarkModule extends AbstractModule {
+    @Override protected void configure() {
+      bind(SingletonLeaf.class).in(Scopes.SINGLETON);
+      bind(Service.class).to(ServiceImpl.class);
+      bind(Chicken.class).to(ChickenImpl.class);
+      bind(Egg.class).to(EggImpl.class);
+    }
+
+    @Provides @Named("fastClass")
+    public String provideFastClass(Leaf leaf) {
+      return "fastClass";
+    }
+
+    @SuppressWarnings("unused") // invoked reflectively by Guice
+    @Provides @Named("reflection")
+    private String provideReflection(Leaf leaf) {
+      return "reflection";
+    }
+  }
+
+  public static class Leaf {}
+
+  public static class SingletonLeaf {}
+
+  public interface Service {}
+
+  public static class ServiceImpl implements Service {
+    @Inject ServiceImpl(Leaf leaf, SingletonLeaf singletonLeaf) {}
+  }
+
+  /** A small graph of unscoped and singleton dependencies, built by constructor injection. */
+  public static class Tree {
+    @Inject Tree(Branch left, Branch right, SingletonLeaf root) {}
+  }
+
+  public static class Branch {
+    @Inject Branch(Leaf a, Leaf b, Service service) {}
+  }
+
+  public static class Injectable {
+    @Inject Leaf leaf;
+    @Inject SingletonLeaf singletonLeaf;
+    Service service;
+
+    @Inject void setService(Service service) {
+      this.service = service;
+    }
+  }
+
+  /** Chicken and egg depend on one another, so every provision creates a circular proxy. */
+  public interface Chicken {}
+
+  public interface Egg {}
+
+  public static class ChickenImpl implements Chicken {
+    @Inject ChickenImpl(Egg egg) {}
+  }
+
+  public static class EggImpl implements Egg {
+    @Inject EggImpl(Chicken chicken) {}
+  }
+}
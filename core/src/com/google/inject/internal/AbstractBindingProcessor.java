@@ -156,11 +156,16 @@ abstract class AbstractBindingProcessor extends AbstractProcessor {
     protected void scheduleInitialization(final BindingImpl<?> binding) {
       bindingData.addUninitializedBinding(new Runnable() {
         public void run() {
+          InjectorCreationProfiler profiler = InjectorCreationProfiler.current();
+          long start = profiler != null ? System.nanoTime() : 0;
           try {
             binding.getInjector().initializeBinding(binding, errors.withSource(source));
           } catch (ErrorsException e) {
             errors.merge(e.getErrors());
           }
+          if (profiler != null) {
+            profiler.bindingInitialized(binding.getKey(), System.nanoTime() - start);
+          }
         }
       });
     }
@@ -40,7 +40,7 @@ final class BoundProviderFactory<T> extends ProviderInternalFactory<T> implement
       Object source,
       boolean allowProxy,
       ProvisionListenerStackCallback<T> provisionCallback) {
-    super(source, allowProxy);
+    super(source, allowProxy, injector.newConstructionSlot());
     this.provisionCallback = checkNotNull(provisionCallback, "provisionCallback");
     this.injector = injector;
     this.providerKey = providerKey;
@@ -192,6 +192,14 @@ public final class BytecodeGen {
   }
 
   /*if[AOP]*/
+  /**
+   * Returns true if members should be invoked with a generated FastClass rather than reflection.
+   * See {@link InternalFlags#getInvocationOption}.
+   */
+  static boolean isFastClassEnabled() {
+    return InternalFlags.getInvocationOption() == InternalFlags.InvocationOption.FAST_CLASS;
+  }
+
   // use fully-qualified names so imports don't need preprocessor statements 
   public static net.sf.cglib.reflect.FastClass newFastClass(Class<?> type, Visibility visibility) {
     net.sf.cglib.reflect.FastClass.Generator generator
@@ -202,7 +210,16 @@ public final class BytecodeGen {
     }
     generator.setNamingPolicy(FASTCLASS_NAMING_POLICY);
     logger.fine("Loading " + type + " FastClass with " + generator.getClassLoader());
-    return generator.create();
+    InjectorCreationProfiler profiler = InjectorCreationProfiler.current();
+    if (profiler == null) {
+      return generator.create();
+    }
+    long start = System.nanoTime();
+    try {
+      return generator.create();
+    } finally {
+      profiler.fastClassCreated(System.nanoTime() - start);
+    }
   }
 
   public static net.sf.cglib.proxy.Enhancer newEnhancer(Class<?> type, Visibility visibility) {
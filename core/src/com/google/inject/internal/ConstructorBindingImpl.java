@@ -63,8 +63,9 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T>
     ConstructionProxy<T> constructionProxy
         = new DefaultConstructionProxyFactory<T>(constructorInjectionPoint).create();
     this.constructorInjectionPoint = constructorInjectionPoint;
+    // This binding isn't part of an injector, so it's never provisioned and doesn't need a slot.
     factory.constructorInjector = new ConstructorInjector<T>(
-        injectionPoints, constructionProxy, null, null);
+        injectionPoints, constructionProxy, null, null, -1, null);
   }
 
   /**
@@ -98,7 +99,8 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T>
     // Find a constructor annotated @Inject
     if (constructorInjector == null) {
       try {
-        constructorInjector = InjectionPoint.forConstructorOf(key.getTypeLiteral());
+        constructorInjector =
+            injector.injectionPointScanner.forConstructorOf(key.getTypeLiteral());
         if (failIfNotExplicit && !hasAtInject((Constructor) constructorInjector.getMember())) {
           errors.atInjectRequired(rawType);
         }
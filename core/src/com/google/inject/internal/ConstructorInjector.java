@@ -35,15 +35,26 @@ final class ConstructorInjector<T> {
   private final SingleParameterInjector<?>[] parameterInjectors;
   private final ConstructionProxy<T> constructionProxy;
   private final MembersInjectorImpl<T> membersInjector;
+  private final int constructionSlot;
+  private final InjectionPlan<T> plan;
 
+  /**
+   * @param constructionSlot this injector's hash in the {@link InternalContext}'s table of
+   *     construction contexts, from {@link InjectorImpl#newConstructionSlot}
+   * @param plan a compiled replacement for the parameter and member injectors, or null to use them
+   */
   ConstructorInjector(Set<InjectionPoint> injectableMembers,
       ConstructionProxy<T> constructionProxy,
       SingleParameterInjector<?>[] parameterInjectors,
-      MembersInjectorImpl<T> membersInjector) {
+      MembersInjectorImpl<T> membersInjector,
+      int constructionSlot,
+      InjectionPlan<T> plan) {
     this.injectableMembers = ImmutableSet.copyOf(injectableMembers);
     this.constructionProxy = constructionProxy;
     this.parameterInjectors = parameterInjectors;
     this.membersInjector = membersInjector;
+    this.constructionSlot = constructionSlot;
+    this.plan = plan;
   }
 
   public ImmutableSet<InjectionPoint> getInjectableMembers() {
@@ -62,7 +73,8 @@ final class ConstructorInjector<T> {
       Class<?> expectedType, boolean allowProxy,
       ProvisionListenerStackCallback<T> provisionCallback)
       throws ErrorsException {
-    final ConstructionContext<T> constructionContext = context.getConstructionContext(this);
+    final ConstructionContext<T> constructionContext =
+        context.getConstructionContext(this, constructionSlot);
 
     // We have a circular reference between constructors. Return a proxy.
     if (constructionContext.isConstructing()) {
@@ -81,20 +93,30 @@ final class ConstructorInjector<T> {
       return t;
     }
 
+    ProvisionMetricsRecorder metrics = provisionCallback.getMetrics();
+    long start = metrics != null ? System.nanoTime() : 0;
+    boolean provisioned = false;
     constructionContext.startConstruction();
     try {
+      Object result;
       // Optimization: Don't go through the callback stack if we have no listeners.
       if (!provisionCallback.hasListeners()) {
-        return provision(errors, context, constructionContext);        
+        result = provision(errors, context, constructionContext);
       } else {
-        return provisionCallback.provision(errors, context, new ProvisionCallback<T>() {
+        result = provisionCallback.provision(errors, context, new ProvisionCallback<T>() {
           public T call() throws ErrorsException {
             return provision(errors, context, constructionContext);
           }
         });
       }
+      provisioned = true;
+      return result;
     } finally {
       constructionContext.finishConstruction();
+      context.releaseConstructionContext(this, constructionSlot);
+      if (metrics != null) {
+        metrics.record(System.nanoTime() - start, !provisioned);
+      }
     }
   }
 
@@ -104,8 +126,12 @@ final class ConstructorInjector<T> {
     try {
       T t;
       try {
-        Object[] parameters = SingleParameterInjector.getAll(errors, context, parameterInjectors);
-        t = constructionProxy.newInstance(parameters);
+        if (plan != null) {
+          t = plan.construct(errors, context);
+        } else {
+          Object[] parameters = SingleParameterInjector.getAll(errors, context, parameterInjectors);
+          t = constructionProxy.newInstance(parameters);
+        }
         constructionContext.setProxyDelegates(t);
       } finally {
         constructionContext.finishConstruction();
@@ -114,7 +140,12 @@ final class ConstructorInjector<T> {
       // Store reference. If an injector re-enters this factory, they'll get the same reference.
       constructionContext.setCurrentReference(t);
 
-      membersInjector.injectMembers(t, errors, context, false);
+      if (plan != null) {
+        plan.injectMembers(t, errors, context);
+        membersInjector.injectUserMembers(t, errors);
+      } else {
+        membersInjector.injectMembers(t, errors, context, false);
+      }
       membersInjector.notifyListeners(t, errors);
 
       return t;
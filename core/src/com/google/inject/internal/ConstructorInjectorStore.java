@@ -87,7 +87,17 @@ final class ConstructorInjectorStore {
 
     errors.throwIfNewErrors(numErrorsBefore);
 
-    return new ConstructorInjector<T>(membersInjector.getInjectionPoints(), factory.create(),
-        constructorParameterInjectors, membersInjector);
+    ConstructionProxy<T> constructionProxy = factory.create();
+    InjectionPlan<T> plan = null;
+    /*if[AOP]*/
+    if (InternalFlags.isCompileInjectionPlansEnabled()
+        && constructionProxy.getMethodInterceptors().isEmpty()) {
+      plan = InjectionPlanGenerator.compile(
+          constructionProxy, constructorParameterInjectors, membersInjector);
+    }
+    /*end[AOP]*/
+
+    return new ConstructorInjector<T>(membersInjector.getInjectionPoints(), constructionProxy,
+        constructorParameterInjectors, membersInjector, injector.newConstructionSlot(), plan);
   }
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A re-entrant lock that refuses to wait when waiting would deadlock. Before blocking, it follows
+ * the chain of threads that own and wait on cycle detecting locks, starting with the owner of this
+ * lock. If that chain leads back to the current thread, the cycle is returned instead of locking.
+ *
+ * <p>Cycles are found by the thread that closes them, so at most one thread in a cycle fails.
+ * This is public so that the servlet extension's session scope can lock its objects the same way.
+ *
+ * @param <ID> identifies locks in cycle reports
+ */
+public final class CycleDetectingLock<ID> {
+
+  /**
+   * The lock that each thread is blocked on, if any. This and the {@link #owner} of every lock are
+   * guarded by {@code CycleDetectingLock.class}.
+   */
+  private static final Map<Thread, CycleDetectingLock<?>> lockThreadIsWaitingOn
+      = Maps.newHashMap();
+
+  private final ID id;
+  private final ReentrantLock lockImplementation = new ReentrantLock();
+  private Thread owner;
+
+  public CycleDetectingLock(ID id) {
+    this.id = id;
+  }
+
+  /**
+   * Acquires this lock, blocking until it's available. If another thread owns this lock and is
+   * (possibly indirectly) waiting on a lock owned by the current thread, this doesn't lock and
+   * instead returns the threads in that cycle, each mapped to the ID of the lock it's waiting on.
+   * The current thread is the first entry.
+   *
+   * @return an empty map if this lock was acquired
+   */
+  public ImmutableMap<Thread, Object> lockOrDetectCycle() {
+    Thread current = Thread.currentThread();
+    synchronized (CycleDetectingLock.class) {
+      if (lockImplementation.tryLock()) {
+        owner = current;
+        return ImmutableMap.of();
+      }
+
+      Map<Thread, Object> waiters = Maps.newLinkedHashMap();
+      waiters.put(current, id);
+      for (Thread thread = owner; thread != null && !waiters.containsKey(thread); ) {
+        CycleDetectingLock<?> awaited = lockThreadIsWaitingOn.get(thread);
+        if (awaited == null) {
+          break; // the chain ends with a thread that's running, so it will release its locks
+        }
+        waiters.put(thread, awaited.id);
+        thread = awaited.owner;
+        if (thread == current) {
+          return ImmutableMap.copyOf(waiters);
+        }
+      }
+      lockThreadIsWaitingOn.put(current, this);
+    }
+
+    lockImplementation.lock();
+    synchronized (CycleDetectingLock.class) {
+      lockThreadIsWaitingOn.remove(current);
+      owner = current;
+    }
+    return ImmutableMap.of();
+  }
+
+  /** Releases this lock, which must be held by the current thread. */
+  public void unlock() {
+    synchronized (CycleDetectingLock.class) {
+      if (lockImplementation.getHoldCount() == 1) {
+        owner = null;
+      }
+    }
+    lockImplementation.unlock();
+  }
+
+  @Override public String toString() {
+    return "CycleDetectingLock[" + id + "]";
+  }
+}
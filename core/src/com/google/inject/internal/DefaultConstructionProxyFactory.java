@@ -46,32 +46,34 @@ final class DefaultConstructionProxyFactory<T> implements ConstructionProxyFacto
     @SuppressWarnings("unchecked") // the injection point is for a constructor of T
     final Constructor<T> constructor = (Constructor<T>) injectionPoint.getMember();
 
-    // Use FastConstructor if the constructor is public.
+    // Use FastConstructor if the constructor is public and FastClasses are enabled.
     if (Modifier.isPublic(constructor.getModifiers())) {
       Class<T> classToConstruct = constructor.getDeclaringClass();
       /*if[AOP]*/
-      try {
-        final net.sf.cglib.reflect.FastConstructor fastConstructor
-            = BytecodeGen.newFastClass(classToConstruct, Visibility.forMember(constructor))
-                .getConstructor(constructor);
+      if (BytecodeGen.isFastClassEnabled()) {
+        try {
+          final net.sf.cglib.reflect.FastConstructor fastConstructor
+              = BytecodeGen.newFastClass(classToConstruct, Visibility.forMember(constructor))
+                  .getConstructor(constructor);
 
-      return new ConstructionProxy<T>() {
-        @SuppressWarnings("unchecked")
-        public T newInstance(Object... arguments) throws InvocationTargetException {
-          return (T) fastConstructor.newInstance(arguments);
-        }
-        public InjectionPoint getInjectionPoint() {
-          return injectionPoint;
-        }
-        public Constructor<T> getConstructor() {
-          return constructor;
-        }
-        public ImmutableMap<Method, List<org.aopalliance.intercept.MethodInterceptor>>
-            getMethodInterceptors() {
-          return ImmutableMap.of();
-        }
-      };
-      } catch (net.sf.cglib.core.CodeGenerationException e) {/* fall-through */}
+          return new ConstructionProxy<T>() {
+            @SuppressWarnings("unchecked")
+            public T newInstance(Object... arguments) throws InvocationTargetException {
+              return (T) fastConstructor.newInstance(arguments);
+            }
+            public InjectionPoint getInjectionPoint() {
+              return injectionPoint;
+            }
+            public Constructor<T> getConstructor() {
+              return constructor;
+            }
+            public ImmutableMap<Method, List<org.aopalliance.intercept.MethodInterceptor>>
+                getMethodInterceptors() {
+              return ImmutableMap.of();
+            }
+          };
+        } catch (net.sf.cglib.core.CodeGenerationException e) {/* fall-through */}
+      }
       /*end[AOP]*/
       if (!Modifier.isPublic(classToConstruct.getModifiers())) {
         constructor.setAccessible(true);
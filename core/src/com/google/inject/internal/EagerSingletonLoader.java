@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads eager singletons on a pool of threads. Enabled with {@code
+ * -Dguice_eager_singleton_threads=N}.
+ *
+ * <p>Singletons are started in the order of their static dependencies: a singleton isn't started
+ * until the eager singletons that it depends on, directly or through other bindings, have been
+ * loaded. Singletons that don't depend on each other are loaded concurrently. Singletons that
+ * depend on each other in a cycle are loaded together on one thread, in binding order, so that
+ * circular proxies work as they do when loading on the creating thread. Dependencies that are only
+ * looked up at runtime aren't known; if two singletons on different threads wait on each other that
+ * way, {@link SingletonScope} fails one of them rather than deadlocking.
+ *
+ * <p>Each singleton's failures are collected separately and reported in binding order, so the
+ * injector fails with the same {@link com.google.inject.CreationException} whatever the threads'
+ * timing was.
+ */
+final class EagerSingletonLoader {
+
+  /** The singletons to load, in binding order. */
+  private final List<Node> nodes = Lists.newArrayList();
+  private final Map<BindingImpl<?>, Node> nodesByBinding = Maps.newIdentityHashMap();
+
+  /** Released once every group has been loaded. */
+  private final CountDownLatch remaining = new CountDownLatch(1);
+  private int remainingGroups;
+  private ExecutorService executor;
+  private Throwable unexpectedFailure;
+
+  void add(InjectorImpl injector, BindingImpl<?> binding) {
+    if (!nodesByBinding.containsKey(binding)) {
+      Node node = new Node(nodes.size(), injector, binding);
+      nodes.add(node);
+      nodesByBinding.put(binding, node);
+    }
+  }
+
+  /** Loads the singletons on {@code threads} threads, then adds their failures to {@code errors}. */
+  void load(int threads, Errors errors) {
+    List<Group> groups = group();
+    if (!groups.isEmpty()) {
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setNameFormat("Guice eager singleton %d")
+          .setDaemon(true)
+          .build());
+      try {
+        synchronized (this) {
+          remainingGroups = groups.size();
+          for (Group group : groups) {
+            if (group.waitingFor == 0) {
+              executor.execute(group);
+            }
+          }
+        }
+        Uninterruptibles.awaitUninterruptibly(remaining);
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    if (unexpectedFailure != null) {
+      throw Throwables.propagate(unexpectedFailure);
+    }
+    for (Node node : nodes) {
+      errors.merge(node.errors);
+    }
+  }
+
+  /** Called when {@code group} has been loaded, to start the groups that were waiting for it. */
+  private synchronized void loaded(Group group, Throwable failure) {
+    if (failure != null && unexpectedFailure == null) {
+      unexpectedFailure = failure;
+    }
+    for (Group dependent : group.dependents) {
+      if (--dependent.waitingFor == 0) {
+        executor.execute(dependent);
+      }
+    }
+    if (--remainingGroups == 0) {
+      remaining.countDown();
+    }
+  }
+
+  /**
+   * Returns the singletons grouped into the strongly connected components of their dependency
+   * graph, so that each group depends on the groups before it and is independent of the rest.
+   */
+  private List<Group> group() {
+    for (Node node : nodes) {
+      Set<BindingImpl<?>> visited = Sets.newIdentityHashSet();
+      findPrerequisites(node, node.injector, node.binding, visited);
+    }
+
+    // Tarjan's algorithm. Groups are found after the groups they depend on.
+    List<Group> groups = Lists.newArrayList();
+    List<Node> stack = Lists.newArrayList();
+    int[] index = new int[1];
+    for (Node node : nodes) {
+      if (node.index == -1) {
+        connect(node, index, stack, groups);
+      }
+    }
+
+    for (Group group : groups) {
+      for (Node node : group.nodes) {
+        for (Node prerequisite : node.prerequisites) {
+          if (prerequisite.group != group && prerequisite.group.dependents.add(group)) {
+            group.waitingFor++;
+          }
+        }
+      }
+    }
+    return groups;
+  }
+
+  private void connect(Node node, int[] index, List<Node> stack, List<Group> groups) {
+    node.index = index[0];
+    node.lowLink = index[0];
+    index[0]++;
+    stack.add(node);
+    node.onStack = true;
+
+    for (Node prerequisite : node.prerequisites) {
+      if (prerequisite.index == -1) {
+        connect(prerequisite, index, stack, groups);
+        node.lowLink = Math.min(node.lowLink, prerequisite.lowLink);
+      } else if (prerequisite.onStack) {
+        node.lowLink = Math.min(node.lowLink, prerequisite.index);
+      }
+    }
+
+    if (node.lowLink == node.index) {
+      Group group = new Group();
+      Node member;
+      do {
+        member = stack.remove(stack.size() - 1);
+        member.onStack = false;
+        member.group = group;
+        group.nodes.add(member);
+      } while (member != node);
+      // load the group's singletons in binding order
+      Collections.sort(group.nodes, new Comparator<Node>() {
+        public int compare(Node a, Node b) {
+          return a.order - b.order;
+        }
+      });
+      groups.add(group);
+    }
+  }
+
+  /**
+   * Adds the eager singletons that {@code binding} depends on to {@code node}'s prerequisites,
+   * following the dependencies of bindings that aren't eager singletons.
+   */
+  private void findPrerequisites(Node node, InjectorImpl injector, BindingImpl<?> binding,
+      Set<BindingImpl<?>> visited) {
+    // exposed bindings depend on the binding in their private environment
+    InjectorImpl bindingInjector = binding instanceof ExposedBindingImpl
+        ? (InjectorImpl) ((ExposedBindingImpl<?>) binding).getPrivateElements().getInjector()
+        : injector;
+    for (Key<?> key : getDependencies(binding)) {
+      BindingImpl<?> dependency;
+      try {
+        dependency = bindingInjector.getExistingBinding(key);
+      } catch (RuntimeException e) {
+        continue; // reported when the singleton is loaded
+      }
+      if (dependency == null || !visited.add(dependency)) {
+        continue;
+      }
+
+      Node prerequisite = nodesByBinding.get(dependency);
+      if (prerequisite == null) {
+        findPrerequisites(node, dependency.getInjector() != null
+            ? dependency.getInjector() : bindingInjector, dependency, visited);
+      } else if (prerequisite != node) {
+        node.prerequisites.add(prerequisite);
+      }
+    }
+  }
+
+  /**
+   * Returns the keys that {@code binding} depends on, with providers replaced by the key that they
+   * provide so that looking up the dependency doesn't create a binding.
+   */
+  private static Set<Key<?>> getDependencies(BindingImpl<?> binding) {
+    if (binding instanceof ExposedBindingImpl) {
+      return ImmutableSet.<Key<?>>of(binding.getKey());
+    }
+    if (!(binding instanceof HasDependencies)) {
+      return ImmutableSet.of();
+    }
+
+    Set<Dependency<?>> dependencies;
+    try {
+      dependencies = ((HasDependencies) binding).getDependencies();
+    } catch (RuntimeException e) {
+      return ImmutableSet.of(); // reported when the singleton is loaded
+    }
+    Set<Key<?>> keys = Sets.newLinkedHashSet();
+    for (Dependency<?> dependency : dependencies) {
+      Key<?> key = dependency.getKey();
+      Class<?> rawType = key.getTypeLiteral().getRawType();
+      if ((rawType == Provider.class || rawType == javax.inject.Provider.class)
+          && key.getTypeLiteral().getType() instanceof ParameterizedType) {
+        key = key.ofType(
+            ((ParameterizedType) key.getTypeLiteral().getType()).getActualTypeArguments()[0]);
+      }
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  /** An eager singleton. */
+  private static final class Node {
+    /** The index of this singleton in binding order. */
+    final int order;
+    final InjectorImpl injector;
+    final BindingImpl<?> binding;
+    final Errors errors = new Errors();
+    final Set<Node> prerequisites = Sets.newLinkedHashSet();
+
+    /** Tarjan's algorithm bookkeeping. */
+    int index = -1;
+    int lowLink;
+    boolean onStack;
+    Group group;
+
+    Node(int order, InjectorImpl injector, BindingImpl<?> binding) {
+      this.order = order;
+      this.injector = injector;
+      this.binding = binding;
+    }
+  }
+
+  /** Singletons that are loaded together, once the groups they depend on have been loaded. */
+  private final class Group implements Runnable {
+    final List<Node> nodes = Lists.newArrayList();
+    final Set<Group> dependents = Sets.newLinkedHashSet();
+    int waitingFor;
+
+    public void run() {
+      Throwable failure = null;
+      try {
+        for (Node node : nodes) {
+          InternalInjectorCreator.loadEagerSingleton(node.injector, node.binding, node.errors);
+        }
+      } catch (RuntimeException e) {
+        failure = e;
+      } catch (Error e) {
+        failure = e;
+      } finally {
+        loaded(this, failure);
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A constructor injection that has been compiled to bytecode. Subclasses are generated for a single
+ * type: they call its constructor, set its fields and call its methods directly, getting each
+ * dependency from its binding's internal factory. That replaces the loops over parameter and member
+ * injectors in {@link ConstructorInjector} and {@link MembersInjectorImpl} with straight-line code.
+ *
+ * <p>Plans are only generated when compiled injection plans are enabled with {@link
+ * InternalFlags#isCompileInjectionPlansEnabled}. Generated subclasses live in the package of the
+ * type they construct, so everything they use here is public.
+ *
+ * @param <T> the type constructed
+ */
+public abstract class InjectionPlan<T> {
+
+  /**
+   * The factory, dependency and binding source of each dependency: first the constructor's
+   * parameters, then those of each field and method in injection order.
+   */
+  protected final InternalFactory<?>[] factories;
+  protected final Dependency<?>[] dependencies;
+  protected final Object[] sources;
+
+  /** The injection point of each field and method, in injection order. */
+  protected final InjectionPoint[] memberInjectionPoints;
+
+  protected InjectionPlan(InternalFactory<?>[] factories, Dependency<?>[] dependencies,
+      Object[] sources, InjectionPoint[] memberInjectionPoints) {
+    this.factories = factories;
+    this.dependencies = dependencies;
+    this.sources = sources;
+    this.memberInjectionPoints = memberInjectionPoints;
+  }
+
+  /**
+   * Gets the constructor's parameters and invokes it. This behaves like {@link
+   * SingleParameterInjector#getAll} followed by {@link ConstructionProxy#newInstance}.
+   *
+   * @throws InvocationTargetException if the constructor throws
+   */
+  public abstract T construct(Errors errors, InternalContext context)
+      throws ErrorsException, InvocationTargetException;
+
+  /**
+   * Injects the fields and methods of {@code instance}. This behaves like calling each of the
+   * type's {@link SingleMemberInjector}s: failures are recorded in {@code errors} and don't prevent
+   * the remaining members from being injected.
+   */
+  public abstract void injectMembers(T instance, Errors errors, InternalContext context);
+
+  /** Records that a constructor or method parameter couldn't be provided. */
+  protected final void parameterFailed(Errors errors, ErrorsException e) {
+    errors.merge(e.getErrors());
+  }
+
+  /** Records that the dependency of a field couldn't be provided. */
+  protected final void fieldFailed(Errors errors, int dependency, int member, ErrorsException e) {
+    errors.withSource(dependencies[dependency]).withSource(memberInjectionPoints[member])
+        .merge(e.getErrors());
+  }
+
+  /** Records that an injected method threw. */
+  protected final void methodFailed(Errors errors, int member, Throwable cause) {
+    errors.withSource(memberInjectionPoints[member]).errorInjectingMethod(cause);
+  }
+}
@@ -0,0 +1,511 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.internal.BytecodeGen.Visibility;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.Block;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.DefaultNamingPolicy;
+import net.sf.cglib.core.Local;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates {@link InjectionPlan}s. Every dependency gets its own call site in the generated code,
+ * so each call to an internal factory only ever sees one factory and can be inlined.
+ *
+ * <p>Generated classes are cached by the members they inject, so injectors that construct the same
+ * type share a class. Types that generated code can't reach, such as those with private injected
+ * members or final injected fields, aren't compiled; they're injected reflectively as usual.
+ *
+ * @param <T> the type constructed
+ */
+final class InjectionPlanGenerator<T> extends AbstractClassGenerator {
+
+  private static final Logger logger = Logger.getLogger(InjectionPlanGenerator.class.getName());
+
+  private static final Source SOURCE = new Source(InjectionPlan.class.getName());
+
+  private static final DefaultNamingPolicy NAMING_POLICY = new DefaultNamingPolicy() {
+    @Override protected String getTag() {
+      return "ByGuice";
+    }
+  };
+
+  private static final Class<?>[] PLAN_CONSTRUCTOR_PARAMETERS = {
+      InternalFactory[].class, Dependency[].class, Object[].class, InjectionPoint[].class };
+
+  private static final Type PLAN = Type.getType(InjectionPlan.class);
+  private static final Type ERRORS = Type.getType(Errors.class);
+  private static final Type ERRORS_EXCEPTION = Type.getType(ErrorsException.class);
+  private static final Type CONTEXT = Type.getType(InternalContext.class);
+  private static final Type FACTORY = Type.getType(InternalFactory.class);
+  private static final Type DEPENDENCY = Type.getType(Dependency.class);
+  private static final Type INVOCATION_TARGET_EXCEPTION
+      = Type.getType(InvocationTargetException.class);
+
+  private static final Signature PLAN_CONSTRUCTOR = new Signature("<init>", Type.VOID_TYPE,
+      new Type[] { Type.getType(InternalFactory[].class), Type.getType(Dependency[].class),
+          Constants.TYPE_OBJECT_ARRAY, Type.getType(InjectionPoint[].class) });
+  private static final Signature CONSTRUCT = new Signature("construct", Constants.TYPE_OBJECT,
+      new Type[] { ERRORS, CONTEXT });
+  private static final Signature INJECT_MEMBERS = new Signature("injectMembers", Type.VOID_TYPE,
+      new Type[] { Constants.TYPE_OBJECT, ERRORS, CONTEXT });
+  private static final Signature PARAMETER_FAILED = new Signature("parameterFailed",
+      Type.VOID_TYPE, new Type[] { ERRORS, ERRORS_EXCEPTION });
+  private static final Signature FIELD_FAILED = new Signature("fieldFailed", Type.VOID_TYPE,
+      new Type[] { ERRORS, Type.INT_TYPE, Type.INT_TYPE, ERRORS_EXCEPTION });
+  private static final Signature METHOD_FAILED = new Signature("methodFailed", Type.VOID_TYPE,
+      new Type[] { ERRORS, Type.INT_TYPE, Constants.TYPE_THROWABLE });
+  private static final Signature FACTORY_GET = new Signature("get", Constants.TYPE_OBJECT,
+      new Type[] { ERRORS, CONTEXT, DEPENDENCY, Type.BOOLEAN_TYPE });
+  private static final Signature PUSH_DEPENDENCY = new Signature("pushDependency", DEPENDENCY,
+      new Type[] { DEPENDENCY, Constants.TYPE_OBJECT });
+  private static final Signature POP_STATE_AND_SET_DEPENDENCY = new Signature(
+      "popStateAndSetDependency", Type.VOID_TYPE, new Type[] { DEPENDENCY });
+  private static final Signature WITH_SOURCE = new Signature("withSource", ERRORS,
+      new Type[] { Constants.TYPE_OBJECT });
+  private static final Signature SIZE = new Signature("size", Type.INT_TYPE, new Type[0]);
+  private static final Signature THROW_IF_NEW_ERRORS = new Signature("throwIfNewErrors",
+      Type.VOID_TYPE, new Type[] { Type.INT_TYPE });
+  private static final Signature WRAP_THROWABLE = new Signature("<init>", Type.VOID_TYPE,
+      new Type[] { Constants.TYPE_THROWABLE });
+
+  /**
+   * Returns a compiled plan for constructing with {@code constructionProxy}, or null if the type
+   * can't be compiled. The proxy mustn't have any method interceptors.
+   *
+   * @param parameterInjectors the constructor's parameter injectors, or null if it has none
+   */
+  static <T> InjectionPlan<T> compile(ConstructionProxy<T> constructionProxy,
+      SingleParameterInjector<?>[] parameterInjectors, MembersInjectorImpl<T> membersInjector) {
+    Constructor<T> constructor = constructionProxy.getConstructor();
+    List<Member> members = Lists.newArrayList();
+    List<InjectionPoint> memberInjectionPoints = Lists.newArrayList();
+    List<Dependency<?>> dependencies = Lists.newArrayList();
+    List<BindingImpl<?>> bindings = Lists.newArrayList();
+    addAll(parameterInjectors, dependencies, bindings);
+    for (SingleMemberInjector memberInjector : membersInjector.getMemberInjectors()) {
+      if (memberInjector instanceof SingleFieldInjector) {
+        SingleFieldInjector fieldInjector = (SingleFieldInjector) memberInjector;
+        dependencies.add(fieldInjector.dependency);
+        bindings.add(fieldInjector.binding);
+      } else {
+        addAll(((SingleMethodInjector) memberInjector).parameterInjectors, dependencies, bindings);
+      }
+      members.add(memberInjector.getInjectionPoint().getMember());
+      memberInjectionPoints.add(memberInjector.getInjectionPoint());
+    }
+
+    Class<T> type = constructor.getDeclaringClass();
+    Visibility visibility = visibility(type, constructor, members);
+    if (visibility == null) {
+      return null;
+    }
+
+    int size = dependencies.size();
+    InternalFactory<?>[] factories = new InternalFactory<?>[size];
+    Object[] sources = new Object[size];
+    for (int i = 0; i < size; i++) {
+      factories[i] = bindings.get(i).getInternalFactory();
+      sources[i] = bindings.get(i).getSource();
+    }
+
+    InjectionPlanGenerator<T> generator
+        = new InjectionPlanGenerator<T>(type, constructor, ImmutableList.copyOf(members));
+    if (visibility == Visibility.PUBLIC) {
+      generator.setClassLoader(BytecodeGen.getClassLoader(type));
+    }
+    try {
+      Class<?> planClass = (Class<?>) generator.create(generator.members);
+      @SuppressWarnings("unchecked") // the plan was generated for T
+      InjectionPlan<T> plan = (InjectionPlan<T>) planClass
+          .getConstructor(PLAN_CONSTRUCTOR_PARAMETERS)
+          .newInstance(factories, dependencies.toArray(new Dependency<?>[size]), sources,
+              memberInjectionPoints.toArray(new InjectionPoint[memberInjectionPoints.size()]));
+      return plan;
+    } catch (Exception e) {
+      logger.log(Level.FINE, "Unable to compile an injection plan for " + type, e);
+    } catch (LinkageError e) {
+      logger.log(Level.FINE, "Unable to compile an injection plan for " + type, e);
+    }
+    return null;
+  }
+
+  private static void addAll(SingleParameterInjector<?>[] parameterInjectors,
+      List<Dependency<?>> dependencies, List<BindingImpl<?>> bindings) {
+    if (parameterInjectors != null) {
+      for (SingleParameterInjector<?> parameterInjector : parameterInjectors) {
+        dependencies.add(parameterInjector.dependency);
+        bindings.add(parameterInjector.binding);
+      }
+    }
+  }
+
+  /**
+   * Returns the visibility that a generated class needs to construct {@code type}, or null if a
+   * generated class can't reach everything that it needs to.
+   */
+  private static Visibility visibility(
+      Class<?> type, Constructor<?> constructor, List<Member> members) {
+    Visibility visibility = visibility(type, constructor);
+    for (Class<?> parameterType : constructor.getParameterTypes()) {
+      visibility = and(visibility, visibility(type, parameterType));
+    }
+    for (Member member : members) {
+      visibility = and(visibility, visibility(type, member));
+      if (member instanceof Field) {
+        Field field = (Field) member;
+        if (Modifier.isFinal(field.getModifiers())) {
+          return null; // only reflection may set final fields
+        }
+        visibility = and(visibility, visibility(type, field.getType()));
+      } else {
+        for (Class<?> parameterType : ((Method) member).getParameterTypes()) {
+          visibility = and(visibility, visibility(type, parameterType));
+        }
+      }
+    }
+
+    // package-private access needs a class in the same package and class loader as the type
+    if (visibility == Visibility.SAME_PACKAGE
+        && (type.getClassLoader() == null || type.getName().startsWith("java."))) {
+      return null;
+    }
+    return visibility;
+  }
+
+  private static Visibility and(Visibility a, Visibility b) {
+    return a == null || b == null ? null : a.and(b);
+  }
+
+  private static Visibility visibility(Class<?> type, Member member) {
+    int modifiers = member.getModifiers();
+    if (Modifier.isPrivate(modifiers)) {
+      return null;
+    }
+    Visibility declaringClass = visibility(type, member.getDeclaringClass());
+    if (Modifier.isPublic(modifiers) || declaringClass == null) {
+      return declaringClass;
+    }
+    return isSamePackage(type, member.getDeclaringClass()) ? Visibility.SAME_PACKAGE : null;
+  }
+
+  private static Visibility visibility(Class<?> type, Class<?> referenced) {
+    while (referenced.isArray()) {
+      referenced = referenced.getComponentType();
+    }
+    if (referenced.isPrimitive()) {
+      return Visibility.PUBLIC;
+    }
+
+    boolean isPublic = true;
+    for (Class<?> c = referenced; c != null; c = c.getEnclosingClass()) {
+      if (Modifier.isPrivate(c.getModifiers())) {
+        return null;
+      }
+      isPublic &= Modifier.isPublic(c.getModifiers());
+    }
+    if (isPublic) {
+      return Visibility.PUBLIC;
+    }
+    return isSamePackage(type, referenced) ? Visibility.SAME_PACKAGE : null;
+  }
+
+  private static boolean isSamePackage(Class<?> a, Class<?> b) {
+    return a.getClassLoader() == b.getClassLoader()
+        && packageName(a).equals(packageName(b));
+  }
+
+  private static String packageName(Class<?> c) {
+    String name = c.getName();
+    return name.substring(0, Math.max(name.lastIndexOf('.'), 0));
+  }
+
+  private final Class<T> type;
+  private final Constructor<T> constructor;
+  private final ImmutableList<Member> members;
+
+  private InjectionPlanGenerator(
+      Class<T> type, Constructor<T> constructor, ImmutableList<Member> members) {
+    super(SOURCE);
+    this.type = type;
+    this.constructor = constructor;
+    this.members = ImmutableList.<Member>builder().add(constructor).addAll(members).build();
+    setNamePrefix(type.getName());
+    setNamingPolicy(NAMING_POLICY);
+  }
+
+  @Override protected ClassLoader getDefaultClassLoader() {
+    return type.getClassLoader();
+  }
+
+  @Override protected Object firstInstance(Class planClass) {
+    return planClass;
+  }
+
+  @Override protected Object nextInstance(Object instance) {
+    return instance;
+  }
+
+  public void generateClass(ClassVisitor v) {
+    ClassEmitter ce = new ClassEmitter(v);
+    ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC | Constants.ACC_FINAL, getClassName(),
+        PLAN, null, Constants.SOURCE_FILE);
+
+    CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, PLAN_CONSTRUCTOR, null);
+    e.load_this();
+    e.load_args();
+    e.super_invoke_constructor(PLAN_CONSTRUCTOR);
+    e.return_value();
+    e.end_method();
+
+    generateConstruct(ce);
+    generateInjectMembers(ce);
+    ce.end_class();
+  }
+
+  /** Generates {@link InjectionPlan#construct}. Its arguments are the errors and the context. */
+  private void generateConstruct(ClassEmitter ce) {
+    CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, CONSTRUCT, null);
+    Class<?>[] parameterTypes = constructor.getParameterTypes();
+
+    Local numErrorsBefore = e.make_local(Type.INT_TYPE);
+    e.load_arg(0);
+    e.invoke_virtual(ERRORS, SIZE);
+    e.store_local(numErrorsBefore);
+
+    Local[] parameters = new Local[parameterTypes.length];
+    for (int i = 0; i < parameters.length; i++) {
+      parameters[i] = getDependency(e, 0, 1, i, -1, null);
+    }
+
+    e.load_arg(0);
+    e.load_local(numErrorsBefore);
+    e.invoke_virtual(ERRORS, THROW_IF_NEW_ERRORS);
+
+    // wrap anything the constructor throws, just like reflection does
+    Type typeToConstruct = Type.getType(type);
+    Block block = e.begin_block();
+    e.new_instance(typeToConstruct);
+    e.dup();
+    for (int i = 0; i < parameters.length; i++) {
+      e.load_local(parameters[i]);
+      cast(e, parameterTypes[i]);
+    }
+    e.invoke_constructor(typeToConstruct, ReflectUtils.getSignature(constructor));
+    e.return_value();
+    block.end();
+
+    e.catch_exception(block, Constants.TYPE_THROWABLE);
+    Local cause = e.make_local(Constants.TYPE_THROWABLE);
+    e.store_local(cause);
+    e.new_instance(INVOCATION_TARGET_EXCEPTION);
+    e.dup();
+    e.load_local(cause);
+    e.invoke_constructor(INVOCATION_TARGET_EXCEPTION, WRAP_THROWABLE);
+    e.athrow();
+    e.end_method();
+  }
+
+  /**
+   * Generates {@link InjectionPlan#injectMembers}. Its arguments are the instance, the errors and
+   * the context.
+   */
+  private void generateInjectMembers(ClassEmitter ce) {
+    CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, INJECT_MEMBERS, null);
+
+    Local instance = e.make_local(Type.getType(type));
+    e.load_arg(0);
+    e.checkcast(Type.getType(type));
+    e.store_local(instance);
+
+    int dependency = constructor.getParameterTypes().length;
+    for (int member = 0; member < members.size() - 1; member++) {
+      Member toInject = members.get(member + 1);
+      if (toInject instanceof Field) {
+        Field field = (Field) toInject;
+        Label failed = e.make_label();
+        Local value = getDependency(e, 1, 2, dependency++, member, failed);
+        e.load_local(instance);
+        e.load_local(value);
+        cast(e, field.getType());
+        e.putfield(Type.getType(field.getDeclaringClass()), field.getName(),
+            Type.getType(field.getType()));
+        e.mark(failed);
+
+      } else {
+        Method method = (Method) toInject;
+        Class<?>[] parameterTypes = method.getParameterTypes();
+
+        Local numErrorsBefore = e.make_local(Type.INT_TYPE);
+        e.load_arg(1);
+        e.invoke_virtual(ERRORS, SIZE);
+        e.store_local(numErrorsBefore);
+
+        Local[] parameters = new Local[parameterTypes.length];
+        for (int i = 0; i < parameters.length; i++) {
+          parameters[i] = getDependency(e, 1, 2, dependency++, -1, null);
+        }
+
+        // skip the method if any of its parameters couldn't be provided
+        Label done = e.make_label();
+        e.load_arg(1);
+        e.invoke_virtual(ERRORS, SIZE);
+        e.load_local(numErrorsBefore);
+        e.if_icmp(CodeEmitter.NE, done);
+
+        Block block = e.begin_block();
+        e.load_local(instance);
+        for (int i = 0; i < parameters.length; i++) {
+          e.load_local(parameters[i]);
+          cast(e, parameterTypes[i]);
+        }
+        e.invoke_virtual(Type.getType(method.getDeclaringClass()), ReflectUtils.getSignature(method));
+        Type returnType = Type.getType(method.getReturnType());
+        if (returnType.getSize() == 2) {
+          e.pop2();
+        } else if (returnType.getSize() == 1) {
+          e.pop();
+        }
+        block.end();
+        e.goTo(done);
+
+        e.catch_exception(block, Constants.TYPE_THROWABLE);
+        Local cause = e.make_local(Constants.TYPE_THROWABLE);
+        e.store_local(cause);
+        e.load_this();
+        e.load_arg(1);
+        e.push(member);
+        e.load_local(cause);
+        e.invoke_virtual(PLAN, METHOD_FAILED);
+        e.mark(done);
+      }
+    }
+
+    e.return_value();
+    e.end_method();
+  }
+
+  /**
+   * Generates code that gets the value of a dependency, like {@link SingleParameterInjector} and
+   * {@link SingleFieldInjector} do, and returns the local that holds it. If it can't be provided,
+   * the failure is recorded and the generated code continues at {@code failed}, or after the
+   * dependency if that's null.
+   *
+   * @param member the index of the field that's being injected, or -1 for a parameter
+   */
+  private Local getDependency(CodeEmitter e, int errorsArg, int contextArg, int dependency,
+      int member, Label failed) {
+    Local value = e.make_local(Constants.TYPE_OBJECT);
+    Local previous = e.make_local(DEPENDENCY);
+    e.aconst_null();
+    e.store_local(value);
+
+    e.load_arg(contextArg);
+    loadElement(e, "dependencies", Dependency[].class, dependency);
+    loadElement(e, "sources", Object[].class, dependency);
+    e.invoke_virtual(CONTEXT, PUSH_DEPENDENCY);
+    e.store_local(previous);
+
+    Block block = e.begin_block();
+    loadElement(e, "factories", InternalFactory[].class, dependency);
+    e.load_arg(errorsArg);
+    loadElement(e, "dependencies", Dependency[].class, dependency);
+    e.invoke_virtual(ERRORS, WITH_SOURCE);
+    e.load_arg(contextArg);
+    loadElement(e, "dependencies", Dependency[].class, dependency);
+    e.push(false);
+    e.invoke_interface(FACTORY, FACTORY_GET);
+    e.store_local(value);
+    block.end();
+    popState(e, contextArg, previous);
+    Label resolved = e.make_label();
+    e.goTo(resolved);
+
+    e.catch_exception(block, ERRORS_EXCEPTION);
+    Local exception = e.make_local(ERRORS_EXCEPTION);
+    e.store_local(exception);
+    popState(e, contextArg, previous);
+    e.load_this();
+    e.load_arg(errorsArg);
+    if (member == -1) {
+      e.load_local(exception);
+      e.invoke_virtual(PLAN, PARAMETER_FAILED);
+    } else {
+      e.push(dependency);
+      e.push(member);
+      e.load_local(exception);
+      e.invoke_virtual(PLAN, FIELD_FAILED);
+    }
+    e.goTo(failed != null ? failed : resolved);
+
+    // restore the state before rethrowing anything else
+    e.catch_exception(block, Constants.TYPE_THROWABLE);
+    Local throwable = e.make_local(Constants.TYPE_THROWABLE);
+    e.store_local(throwable);
+    popState(e, contextArg, previous);
+    e.load_local(throwable);
+    e.athrow();
+
+    e.mark(resolved);
+    return value;
+  }
+
+  private static void loadElement(CodeEmitter e, String field, Class<?> arrayType, int index) {
+    e.load_this();
+    e.super_getfield(field, Type.getType(arrayType));
+    e.push(index);
+    e.aaload();
+  }
+
+  private static void popState(CodeEmitter e, int contextArg, Local previous) {
+    e.load_arg(contextArg);
+    e.load_local(previous);
+    e.invoke_virtual(CONTEXT, POP_STATE_AND_SET_DEPENDENCY);
+  }
+
+  private static void cast(CodeEmitter e, Class<?> type) {
+    if (type.isPrimitive()) {
+      e.unbox(Type.getType(type));
+    } else if (type != Object.class) {
+      e.checkcast(Type.getType(type));
+    }
+  }
+}
@@ -0,0 +1,448 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Binding;
+import com.google.inject.ConfigurationException;
+import com.google.inject.ImplementedBy;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.ConstructorBinding;
+import com.google.inject.spi.DefaultBindingTargetVisitor;
+import com.google.inject.spi.DefaultElementVisitor;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.InjectionRequest;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.LinkedKeyBinding;
+import com.google.inject.spi.MembersInjectorLookup;
+import com.google.inject.spi.PrivateElements;
+import com.google.inject.spi.ProviderInstanceBinding;
+import com.google.inject.spi.ProviderKeyBinding;
+import com.google.inject.spi.ProviderLookup;
+import com.google.inject.spi.UntargettedBinding;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Finds the injection points of types while an injector is being created. Each type is scanned
+ * once per process: the results are shared by every injector, so child injectors don't scan the
+ * types of their parents again. With {@code -Dguice_injector_image=/path/to/file}, types that
+ * haven't been scanned yet are looked up in an {@link InjectorImage} first, and the ones that had
+ * to be scanned are added to it. Scanning a type is reflective and independent of every other
+ * type, so with {@code
+ * -Dguice_injector_creation_threads=N} it's done on a pool of threads. Scanning starts as soon as
+ * the modules have been run, with the types of their bindings, and follows each scanned type's
+ * dependencies to the types that will need just-in-time bindings.
+ *
+ * <p>Everything else about creating the injector stays on the creating thread, which asks for each
+ * type's injection points when it needs them. A finished scan is returned, one that hasn't started
+ * is run by the caller, and one that's in progress is waited for. The results, including the
+ * errors of types that can't be injected, are exactly what scanning on the creating thread would
+ * return. So bindings, errors and the order they're reported in don't depend on the number of
+ * threads.
+ */
+final class InjectionPointScanner {
+
+  /** Scans each type on the calling thread, when it's needed. */
+  static final InjectionPointScanner DIRECT = new InjectionPointScanner(null, null);
+
+  /** Returns a scanner for a new injector, using as many threads as the flag asks for. */
+  static InjectionPointScanner create() {
+    int threads = InternalFlags.getInjectorCreationThreads();
+    InjectorImage image = InjectorImage.fromFlag();
+    if (threads == 1) {
+      return image == null ? DIRECT : new InjectionPointScanner(null, image);
+    }
+    return new InjectionPointScanner(Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder()
+            .setNameFormat("Guice injector creation %d")
+            .setDaemon(true)
+            .build()), image);
+  }
+
+  /** null if every type is scanned directly. */
+  private final ExecutorService executor;
+  /** null if types aren't looked up in an image. */
+  private final InjectorImage image;
+  private final ConcurrentMap<TypeLiteral<?>, FutureTask<Scan>> scans = Maps.newConcurrentMap();
+
+  private InjectionPointScanner(ExecutorService executor, InjectorImage image) {
+    this.executor = executor;
+    this.image = image;
+  }
+
+  /** Starts scanning the types that {@code elements} bind, depend on or inject. */
+  void scan(Iterable<? extends Element> elements) {
+    if (executor == null) {
+      return;
+    }
+    for (Element element : elements) {
+      element.acceptVisitor(elementVisitor);
+    }
+  }
+
+  /** Stops scanning. Types scanned after this are scanned directly. */
+  void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Returns the scanner to use once this one has been shut down. */
+  InjectionPointScanner direct() {
+    return image == null ? DIRECT : new InjectionPointScanner(null, image);
+  }
+
+  /** Saves the injection points that were scanned to the image, if there is one. */
+  void saveImage() {
+    if (image != null) {
+      image.save();
+    }
+  }
+
+  /** Returns the same value as {@link InjectionPoint#forConstructorOf(TypeLiteral)}. */
+  InjectionPoint forConstructorOf(TypeLiteral<?> type) {
+    Scan scan = get(type);
+    if (scan == null) {
+      return scanConstructor(type);
+    }
+    if (scan.constructorFailure != null) {
+      throw scan.constructorFailure;
+    }
+    return scan.constructor;
+  }
+
+  /** Returns the same value as {@link InjectionPoint#forInstanceMethodsAndFields(TypeLiteral)}. */
+  Set<InjectionPoint> forInstanceMethodsAndFields(TypeLiteral<?> type) {
+    Scan scan = get(type);
+    if (scan == null) {
+      return scanMembers(type);
+    }
+    if (scan.membersFailure != null) {
+      throw scan.membersFailure;
+    }
+    return scan.members;
+  }
+
+  /**
+   * Returns the scan of {@code type}, or null if it wasn't scanned or scanning it failed with an
+   * unexpected exception. That exception is thrown again when the caller scans directly.
+   */
+  private Scan get(TypeLiteral<?> type) {
+    FutureTask<Scan> scan = executor != null ? scans.get(type) : null;
+    if (scan == null) {
+      return null;
+    }
+    scan.run(); // does nothing unless the scan hasn't started yet
+    try {
+      return Uninterruptibles.getUninterruptibly(scan);
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private InjectionPoint scanConstructor(TypeLiteral<?> type) {
+    return constructors.get(type, image);
+  }
+
+  private Set<InjectionPoint> scanMembers(TypeLiteral<?> type) {
+    return members.get(type, image);
+  }
+
+  private void scanType(final TypeLiteral<?> type) {
+    FutureTask<Scan> scan = new FutureTask<Scan>(new Callable<Scan>() {
+      public Scan call() {
+        return new Scan(type);
+      }
+    });
+    if (scans.putIfAbsent(type, scan) == null) {
+      try {
+        executor.execute(scan);
+      } catch (RejectedExecutionException e) {
+        // we've been shut down
+      }
+    }
+  }
+
+  /** Scans the type that {@code key} will be injected with, if it's likely to be constructed. */
+  private void scanKey(Key<?> key) {
+    if (key.getAnnotationType() != null) {
+      return; // only unannotated keys get just-in-time bindings
+    }
+
+    TypeLiteral<?> type = key.getTypeLiteral();
+    Class<?> rawType = type.getRawType();
+    if ((rawType == Provider.class || rawType == javax.inject.Provider.class)
+        && type.getType() instanceof ParameterizedType) {
+      type = TypeLiteral.get(((ParameterizedType) type.getType()).getActualTypeArguments()[0]);
+      rawType = type.getRawType();
+    }
+
+    if (rawType.isInterface()) {
+      ImplementedBy implementedBy = rawType.getAnnotation(ImplementedBy.class);
+      if (implementedBy != null) {
+        scanType(TypeLiteral.get(implementedBy.value()));
+      }
+    } else if (!rawType.isPrimitive() && !rawType.isArray()
+        && !Modifier.isAbstract(rawType.getModifiers())
+        && !rawType.getName().startsWith("java.")) {
+      scanType(type);
+    }
+  }
+
+  private void scanDependencies(Iterable<? extends Dependency<?>> dependencies) {
+    for (Dependency<?> dependency : dependencies) {
+      scanKey(dependency.getKey());
+    }
+  }
+
+  /** The injection points of a type, or why they couldn't be found. */
+  private final class Scan {
+    final InjectionPoint constructor;
+    final ConfigurationException constructorFailure;
+    final Set<InjectionPoint> members;
+    final ConfigurationException membersFailure;
+
+    Scan(TypeLiteral<?> type) {
+      InjectionPoint constructor = null;
+      ConfigurationException constructorFailure = null;
+      try {
+        constructor = scanConstructor(type);
+        scanDependencies(constructor.getDependencies());
+      } catch (ConfigurationException e) {
+        constructorFailure = e;
+      }
+
+      Set<InjectionPoint> members;
+      ConfigurationException membersFailure = null;
+      try {
+        members = scanMembers(type);
+      } catch (ConfigurationException e) {
+        membersFailure = e;
+        members = e.getPartialValue();
+      }
+      for (InjectionPoint member : members) {
+        scanDependencies(member.getDependencies());
+      }
+
+      this.constructor = constructor;
+      this.constructorFailure = constructorFailure;
+      this.members = members;
+      this.membersFailure = membersFailure;
+    }
+  }
+
+  /**
+   * The injection points of the types that have been scanned in this process. They only depend on
+   * the type, so they're shared by every injector. Types are weakly referenced, and their
+   * injection points softly referenced since they refer back to the type.
+   */
+  private static final SharedScans<InjectionPoint> constructors
+      = new SharedScans<InjectionPoint>() {
+    @Override InjectionPoint scan(TypeLiteral<?> type) {
+      return InjectionPoint.forConstructorOf(type);
+    }
+
+    @Override InjectionPoint restore(InjectorImage image, TypeLiteral<?> type) {
+      return image.getConstructor(type);
+    }
+
+    @Override boolean isRecorded(InjectorImage image, TypeLiteral<?> type) {
+      return image.hasConstructor(type);
+    }
+
+    @Override void record(InjectorImage image, TypeLiteral<?> type, InjectionPoint constructor) {
+      image.recordConstructor(type, constructor);
+    }
+  };
+
+  private static final SharedScans<Set<InjectionPoint>> members
+      = new SharedScans<Set<InjectionPoint>>() {
+    @Override Set<InjectionPoint> scan(TypeLiteral<?> type) {
+      return InjectionPoint.forInstanceMethodsAndFields(type);
+    }
+
+    @Override Set<InjectionPoint> restore(InjectorImage image, TypeLiteral<?> type) {
+      return image.getMembers(type);
+    }
+
+    @Override boolean isRecorded(InjectorImage image, TypeLiteral<?> type) {
+      return image.hasMembers(type);
+    }
+
+    @Override void record(InjectorImage image, TypeLiteral<?> type, Set<InjectionPoint> members) {
+      image.recordMembers(type, members);
+    }
+  };
+
+  /**
+   * The results of one kind of scan, by type. A type that isn't cached yet is looked up in the
+   * injector's image before it's scanned, and a cached type is added to the image if it's missing
+   * there.
+   */
+  private abstract static class SharedScans<T> {
+    private final LoadingCache<Class<?>, ConcurrentMap<TypeLiteral<?>, Result<T>>> results
+        = CacheBuilder.newBuilder().weakKeys().softValues().build(
+            new CacheLoader<Class<?>, ConcurrentMap<TypeLiteral<?>, Result<T>>>() {
+              public ConcurrentMap<TypeLiteral<?>, Result<T>> load(Class<?> rawType) {
+                return Maps.newConcurrentMap();
+              }
+            });
+
+    /**
+     * Returns the scan of {@code type}, or throws a copy of the exception that scanning it threw.
+     *
+     * @param image the image of the injector, or null if it doesn't have one
+     */
+    T get(TypeLiteral<?> type, InjectorImage image) {
+      ConcurrentMap<TypeLiteral<?>, Result<T>> resultsOfRawType
+          = results.getUnchecked(type.getRawType());
+      Result<T> result = resultsOfRawType.get(type);
+      if (result == null) {
+        result = find(type, image);
+        resultsOfRawType.putIfAbsent(type, result);
+      } else if (image != null && result.failure == null && !isRecorded(image, type)) {
+        record(image, type, result.value);
+      }
+
+      if (result.failure != null) {
+        throw new ConfigurationException(result.failure.getErrorMessages())
+            .withPartialValue(result.failure.getPartialValue());
+      }
+      return result.value;
+    }
+
+    private Result<T> find(TypeLiteral<?> type, InjectorImage image) {
+      T restored = image != null ? restore(image, type) : null;
+      if (restored != null) {
+        return new Result<T>(restored, null);
+      }
+      try {
+        T scanned = scan(type);
+        if (image != null) {
+          record(image, type, scanned);
+        }
+        return new Result<T>(scanned, null);
+      } catch (ConfigurationException e) {
+        return new Result<T>(null, e);
+      }
+    }
+
+    abstract T scan(TypeLiteral<?> type);
+
+    /** Returns the scan of {@code type} from {@code image}, or null if it isn't there. */
+    abstract T restore(InjectorImage image, TypeLiteral<?> type);
+
+    abstract boolean isRecorded(InjectorImage image, TypeLiteral<?> type);
+
+    abstract void record(InjectorImage image, TypeLiteral<?> type, T value);
+  }
+
+  private static final class Result<T> {
+    final T value;
+    final ConfigurationException failure;
+
+    Result(T value, ConfigurationException failure) {
+      this.value = value;
+      this.failure = failure;
+    }
+  }
+
+  private final DefaultElementVisitor<Void> elementVisitor = new DefaultElementVisitor<Void>() {
+    @Override public <T> Void visit(Binding<T> binding) {
+      return binding.acceptTargetVisitor(bindingVisitor);
+    }
+
+    @Override public Void visit(PrivateElements privateElements) {
+      scan(privateElements.getElements());
+      return null;
+    }
+
+    @Override public Void visit(InjectionRequest<?> injectionRequest) {
+      scanType(TypeLiteral.get(injectionRequest.getInstance().getClass()));
+      return null;
+    }
+
+    @Override public <T> Void visit(ProviderLookup<T> providerLookup) {
+      scanKey(providerLookup.getKey());
+      return null;
+    }
+
+    @Override public <T> Void visit(MembersInjectorLookup<T> lookup) {
+      scanType(lookup.getType());
+      return null;
+    }
+  };
+
+  private final DefaultBindingTargetVisitor<Object, Void> bindingVisitor
+      = new DefaultBindingTargetVisitor<Object, Void>() {
+    @Override public Void visit(UntargettedBinding<?> untargettedBinding) {
+      scanType(untargettedBinding.getKey().getTypeLiteral());
+      return null;
+    }
+
+    @Override public Void visit(LinkedKeyBinding<?> linkedKeyBinding) {
+      scanKey(linkedKeyBinding.getLinkedKey());
+      return null;
+    }
+
+    @Override public Void visit(ProviderKeyBinding<?> providerKeyBinding) {
+      scanKey(providerKeyBinding.getProviderKey());
+      return null;
+    }
+
+    @Override public Void visit(ConstructorBinding<?> constructorBinding) {
+      scanType(constructorBinding.getConstructor().getDeclaringType());
+      return null;
+    }
+
+    @Override public Void visit(InstanceBinding<?> instanceBinding) {
+      if (instanceBinding.getInstance() != null) {
+        scanType(TypeLiteral.get(instanceBinding.getInstance().getClass()));
+      }
+      return null;
+    }
+
+    @Override public Void visit(ProviderInstanceBinding<?> providerInstanceBinding) {
+      // don't call user code to get the dependencies of other providers
+      Object provider = providerInstanceBinding.getUserSuppliedProvider();
+      if (provider instanceof ProviderMethod) {
+        scanDependencies(((ProviderMethod<?>) provider).getDependencies());
+      }
+      scanDependencies(Dependency.forInjectionPoints(providerInstanceBinding.getInjectionPoints()));
+      return null;
+    }
+  };
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.spi.InjectorCreationProfile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Times the phases of creating an injector, and logs each one at {@code FINE}. With {@code
+ * -Dguice_profile_injector_creation=true} it also records the time of each module, binding and
+ * generated class into an {@link InjectorCreationProfile}. Code that doesn't know which injector
+ * it's working for finds the profiler with {@link #current}.
+ */
+public final class InjectorCreationProfiler {
+  private static final Logger logger = Logger.getLogger(InjectorCreationProfiler.class.getName());
+
+  private static final ThreadLocal<InjectorCreationProfiler> current
+      = new ThreadLocal<InjectorCreationProfiler>();
+
+  /** Returns the profiler recording on this thread, or null if nothing is being profiled. */
+  public static InjectorCreationProfiler current() {
+    return current.get();
+  }
+
+  private final boolean enabled = InternalFlags.isProfileInjectorCreationEnabled();
+  /** The profiler of the injector that was being created when this one started. */
+  private InjectorCreationProfiler previous;
+
+  private long phaseStart = System.nanoTime();
+  private final Map<String, Long> phaseNanos = Maps.newLinkedHashMap();
+
+  private final Map<String, Long> moduleNanos = Maps.newLinkedHashMap();
+  /** The start time and the time of installed modules, for each module being configured. */
+  private final List<long[]> modulesInProgress = Lists.newArrayList();
+
+  private final Map<Key<?>, Long> bindingNanos = Maps.newLinkedHashMap();
+  private int fastClassCount;
+  private long fastClassNanos;
+  private int enhancerCount;
+  private long enhancerNanos;
+
+  /** Makes this the current profiler of this thread, if profiling is enabled. */
+  void start() {
+    if (enabled) {
+      previous = current.get();
+      current.set(this);
+    }
+  }
+
+  /** Restores the profiler that was current when this one started. */
+  void stop() {
+    if (enabled) {
+      if (previous != null) {
+        current.set(previous);
+      } else {
+        current.remove();
+      }
+    }
+  }
+
+  /** Ends the current phase, which is named {@code label}, and starts the next one. */
+  void endPhase(String label) {
+    long now = System.nanoTime();
+    long nanos = now - phaseStart;
+    phaseStart = now;
+    logger.fine(label + ": " + (nanos / 1000000) + "ms");
+    if (enabled) {
+      add(phaseNanos, label, nanos);
+    }
+  }
+
+  /** Called before {@code configure()} of a module. Must be followed by {@link #endModule}. */
+  public void beginModule() {
+    modulesInProgress.add(new long[] { System.nanoTime(), 0 });
+  }
+
+  /** Called once {@code module} has been configured. */
+  public void endModule(Module module) {
+    long[] progress = modulesInProgress.remove(modulesInProgress.size() - 1);
+    long nanos = System.nanoTime() - progress[0];
+    add(moduleNanos, module.getClass().getName(), nanos - progress[1]);
+    if (!modulesInProgress.isEmpty()) {
+      modulesInProgress.get(modulesInProgress.size() - 1)[1] += nanos;
+    }
+  }
+
+  void bindingInitialized(Key<?> key, long nanos) {
+    add(bindingNanos, key, nanos);
+  }
+
+  void fastClassCreated(long nanos) {
+    fastClassCount++;
+    fastClassNanos += nanos;
+  }
+
+  void enhancerCreated(long nanos) {
+    enhancerCount++;
+    enhancerNanos += nanos;
+  }
+
+  /** Returns the profile recorded so far, or null if profiling is disabled. */
+  InjectorCreationProfile getProfile() {
+    if (!enabled) {
+      return null;
+    }
+    return SpiConstructors.newInjectorCreationProfile(phaseNanos, moduleNanos, bindingNanos,
+        fastClassCount, fastClassNanos, enhancerCount, enhancerNanos);
+  }
+
+  private static <K> void add(Map<K, Long> map, K key, long nanos) {
+    Long total = map.get(key);
+    map.put(key, total != null ? total + nanos : nanos);
+  }
+}
@@ -0,0 +1,389 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.inject.ConfigurationException;
+import com.google.inject.TypeLiteral;
+import com.google.inject.internal.util.Classes;
+import com.google.inject.spi.InjectionPoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The injection points of types, saved in a file after an injector has been created successfully
+ * so that later runs don't have to find them with reflection again. Enabled with {@code
+ * -Dguice_injector_image=/path/to/file}.
+ *
+ * <p>Each type's entry names its injectable constructor and members, and is only used while the
+ * class files of the type and its superclasses have the same fingerprint as when they were
+ * scanned. Types that failed to scan, that are parameterized or that weren't loaded from the file
+ * system are always scanned. Modules are still run and bindings are still validated in every run:
+ * they're made of live objects that can't be saved.
+ */
+final class InjectorImage {
+  private static final Logger logger = Logger.getLogger(InjectorImage.class.getName());
+
+  private static final int MAGIC = 0x47756963; // "Guic"
+  private static final int VERSION = 1;
+
+  /** The images of this process, by file name. */
+  private static final ConcurrentMap<String, InjectorImage> images = Maps.newConcurrentMap();
+
+  /** Returns the image named by {@code -Dguice_injector_image}, or null if there isn't one. */
+  static InjectorImage fromFlag() {
+    String fileName = InternalFlags.getInjectorImageFile();
+    if (fileName == null) {
+      return null;
+    }
+    InjectorImage image = images.get(fileName);
+    if (image == null) {
+      images.putIfAbsent(fileName, new InjectorImage(new File(fileName)));
+      image = images.get(fileName);
+    }
+    return image;
+  }
+
+  private final File file;
+  private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+  /** True if there are entries that haven't been saved yet. */
+  private volatile boolean dirty;
+
+  InjectorImage(File file) {
+    this.file = file;
+    if (file.exists()) {
+      try {
+        load();
+      } catch (IOException e) {
+        entries.clear();
+        logger.log(Level.WARNING, "Failed to read injector image " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the injection point of the constructor of {@code type}, or null if it isn't in the
+   * image.
+   */
+  InjectionPoint getConstructor(TypeLiteral<?> type) {
+    Entry entry = getEntry(type);
+    if (entry == null || entry.constructor == null) {
+      return null;
+    }
+    Constructor<?> constructor = findConstructor(type.getRawType(), entry.constructor);
+    if (constructor == null) {
+      return null;
+    }
+    try {
+      return forConstructor(constructor, type);
+    } catch (ConfigurationException e) {
+      return null; // scan again for the full error
+    }
+  }
+
+  /**
+   * Returns the injection points of the fields and methods of {@code type}, or null if they aren't
+   * in the image.
+   */
+  Set<InjectionPoint> getMembers(TypeLiteral<?> type) {
+    Entry entry = getEntry(type);
+    if (entry == null || entry.members == null) {
+      return null;
+    }
+    ImmutableSet.Builder<InjectionPoint> members = ImmutableSet.builder();
+    for (String signature : entry.members) {
+      Member member = findMember(type.getRawType(), signature);
+      if (member == null) {
+        return null;
+      }
+      try {
+        members.add(MemberInjectionPoints.forMember(member, type));
+      } catch (ConfigurationException e) {
+        return null;
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+    return members.build();
+  }
+
+  /** Returns true if the constructor of {@code type} is in the image, even if it's outdated. */
+  boolean hasConstructor(TypeLiteral<?> type) {
+    Entry entry = entries.get(type.getRawType().getName());
+    return entry != null && entry.constructor != null;
+  }
+
+  /** Returns true if the members of {@code type} are in the image, even if they're outdated. */
+  boolean hasMembers(TypeLiteral<?> type) {
+    Entry entry = entries.get(type.getRawType().getName());
+    return entry != null && entry.members != null;
+  }
+
+  /** Records the injectable constructor of {@code type}, which was found by scanning. */
+  void recordConstructor(TypeLiteral<?> type, InjectionPoint constructor) {
+    record(type, signature(constructor.getMember()), null);
+  }
+
+  /** Records the injectable fields and methods of {@code type}, which were found by scanning. */
+  void recordMembers(TypeLiteral<?> type, Set<InjectionPoint> members) {
+    ImmutableList.Builder<String> signatures = ImmutableList.builder();
+    for (InjectionPoint member : members) {
+      signatures.add(signature(member.getMember()));
+    }
+    record(type, null, signatures.build());
+  }
+
+  private synchronized void record(
+      TypeLiteral<?> type, String constructor, List<String> members) {
+    String fingerprint = fingerprint(type);
+    if (fingerprint == null) {
+      return;
+    }
+    String name = type.getRawType().getName();
+    Entry entry = entries.get(name);
+    if (entry != null && entry.fingerprint.equals(fingerprint)) {
+      constructor = constructor != null ? constructor : entry.constructor;
+      members = members != null ? members : entry.members;
+    }
+    entries.put(name, new Entry(fingerprint, constructor, members));
+    dirty = true;
+  }
+
+  /** Writes the entries to the file if any were recorded since it was read or written. */
+  synchronized void save() {
+    if (!dirty) {
+      return;
+    }
+    // each save writes its own file, since processes that start together may save at once
+    File temp = null;
+    try {
+      temp = File.createTempFile(
+          file.getName() + ".tmp-", null, file.getAbsoluteFile().getParentFile());
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(temp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+      } finally {
+        out.close();
+      }
+      if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+        throw new IOException("Failed to rename " + temp + " to " + file);
+      }
+      dirty = false;
+    } catch (IOException e) {
+      if (temp != null) {
+        temp.delete();
+      }
+      logger.log(Level.WARNING, "Failed to write injector image " + file, e);
+    }
+  }
+
+  private void load() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not an injector image of this version of Guice");
+      }
+      for (int i = in.readInt(); i > 0; i--) {
+        entries.put(in.readUTF(), Entry.read(in));
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private Entry getEntry(TypeLiteral<?> type) {
+    Entry entry = entries.get(type.getRawType().getName());
+    return entry != null && entry.fingerprint.equals(fingerprint(type)) ? entry : null;
+  }
+
+  /**
+   * The class file stamps of the classes loaded in this process. A loaded class doesn't change
+   * even if its class file does, so each stamp is only read the first time it's needed, instead of
+   * on every lookup and record.
+   */
+  private static final LoadingCache<Class<?>, Optional<String>> stamps
+      = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<Class<?>, Optional<String>>() {
+        @Override public Optional<String> load(Class<?> type) {
+          return Optional.fromNullable(Classes.getClassFileStamp(type));
+        }
+      });
+
+  /**
+   * Returns the stamps of the class files of {@code type} and its superclasses, which its
+   * injection points are found in. Returns null if the type is parameterized or one of the classes
+   * wasn't loaded from the file system.
+   */
+  private static String fingerprint(TypeLiteral<?> type) {
+    if (!(type.getType() instanceof Class)) {
+      return null;
+    }
+    StringBuilder fingerprint = new StringBuilder();
+    for (Class<?> c = type.getRawType(); c != null && c != Object.class; c = c.getSuperclass()) {
+      if (c.getClassLoader() == null) {
+        continue; // the JDK's classes don't change while it's installed
+      }
+      Optional<String> stamp = stamps.getUnchecked(c);
+      if (!stamp.isPresent()) {
+        return null;
+      }
+      fingerprint.append(stamp.get()).append(';');
+    }
+    return fingerprint.toString();
+  }
+
+  /**
+   * Returns a member's declaring class, name and parameter types, such as {@code
+   * com.example.Foo#setBar(com.example.Bar)}. Constructors have no name, and fields have no
+   * parameters.
+   */
+  private static String signature(Member member) {
+    StringBuilder signature = new StringBuilder()
+        .append(member.getDeclaringClass().getName())
+        .append('#');
+    if (member instanceof Constructor) {
+      appendParameters(signature, ((Constructor<?>) member).getParameterTypes());
+    } else if (member instanceof Method) {
+      signature.append(member.getName());
+      appendParameters(signature, ((Method) member).getParameterTypes());
+    } else {
+      signature.append(member.getName());
+    }
+    return signature.toString();
+  }
+
+  private static void appendParameters(StringBuilder signature, Class<?>[] parameterTypes) {
+    signature.append('(');
+    for (int i = 0; i < parameterTypes.length; i++) {
+      signature.append(i == 0 ? "" : ",").append(parameterTypes[i].getName());
+    }
+    signature.append(')');
+  }
+
+  private static Constructor<?> findConstructor(Class<?> rawType, String signature) {
+    for (Constructor<?> constructor : rawType.getDeclaredConstructors()) {
+      if (signature(constructor).equals(signature)) {
+        return constructor;
+      }
+    }
+    return null;
+  }
+
+  /** Finds the field or method with {@code signature} in {@code rawType} or its superclasses. */
+  private static Member findMember(Class<?> rawType, String signature) {
+    String declaringClass = signature.substring(0, signature.indexOf('#'));
+    for (Class<?> c = rawType; c != null; c = c.getSuperclass()) {
+      if (!c.getName().equals(declaringClass)) {
+        continue;
+      }
+      if (signature.indexOf('(') == -1) {
+        for (Field field : c.getDeclaredFields()) {
+          if (signature(field).equals(signature)) {
+            return field;
+          }
+        }
+      } else {
+        for (Method method : c.getDeclaredMethods()) {
+          if (signature(method).equals(signature)) {
+            return method;
+          }
+        }
+      }
+      return null;
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked") // the constructor was found in the raw type of type
+  private static <T> InjectionPoint forConstructor(
+      Constructor<T> constructor, TypeLiteral<?> type) {
+    return InjectionPoint.forConstructor(constructor, (TypeLiteral<T>) type);
+  }
+
+  /** The fingerprint of a type and the signatures of its injection points. */
+  private static final class Entry {
+    final String fingerprint;
+    /** null if the constructor hasn't been recorded. */
+    final String constructor;
+    /** null if the fields and methods haven't been recorded. */
+    final List<String> members;
+
+    Entry(String fingerprint, String constructor, List<String> members) {
+      this.fingerprint = fingerprint;
+      this.constructor = constructor;
+      this.members = members;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeUTF(fingerprint);
+      out.writeBoolean(constructor != null);
+      if (constructor != null) {
+        out.writeUTF(constructor);
+      }
+      out.writeInt(members != null ? members.size() : -1);
+      if (members != null) {
+        for (String member : members) {
+          out.writeUTF(member);
+        }
+      }
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+      String fingerprint = in.readUTF();
+      String constructor = in.readBoolean() ? in.readUTF() : null;
+      int memberCount = in.readInt();
+      List<String> members = null;
+      if (memberCount >= 0) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        for (int i = 0; i < memberCount; i++) {
+          builder.add(in.readUTF());
+        }
+        members = builder.build();
+      }
+      return new Entry(fingerprint, constructor, members);
+    }
+  }
+}
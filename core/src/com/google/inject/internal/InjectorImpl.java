@@ -43,6 +43,7 @@ import com.google.inject.spi.ConvertedConstantBinding;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.HasDependencies;
 import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.InjectorCreationProfile;
 import com.google.inject.spi.ProviderBinding;
 import com.google.inject.spi.TypeConverterBinding;
 import com.google.inject.util.Providers;
@@ -57,6 +58,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default {@link Injector} implementation.
@@ -112,6 +114,11 @@ final class InjectorImpl implements Injector, Lookups {
 
   /** Just-in-time binding cache. Guarded by state.lock() */
   final Map<Key<?>, BindingImpl<?>> jitBindings = Maps.newHashMap();
+  /**
+   * The fully initialized subset of {@link #jitBindings}, for lookups that don't hold
+   * state.lock(). Written while holding the lock, and only once no JIT binding is being created.
+   */
+  final Map<Key<?>, BindingImpl<?>> initializedJitBindings = Maps.newConcurrentMap();
   /**
    * Cache of Keys that we were unable to create JIT bindings for, so we don't
    * keep trying.  Also guarded by state.lock().
@@ -127,8 +134,14 @@ final class InjectorImpl implements Injector, Lookups {
 
     if (parent != null) {
       localContext = parent.localContext;
+      constructionSlots = parent.constructionSlots;
     } else {
-      localContext = new ThreadLocal<Object[]>();
+      constructionSlots = new AtomicInteger();
+      localContext = new ThreadLocal<InternalContext>() {
+        @Override protected InternalContext initialValue() {
+          return new InternalContext();
+        }
+      };
     }
   }
 
@@ -165,14 +178,19 @@ final class InjectorImpl implements Injector, Lookups {
     if (explicitBinding != null) {
       return explicitBinding;
     }
+    // See if any jit bindings have been created for this key.
+    BindingImpl<T> jitBinding = getInitializedJitBinding(key);
+    if (jitBinding != null) {
+      return jitBinding;
+    }
+    boolean outermost = !Thread.holdsLock(state.lock());
     synchronized (state.lock()) {
-      // See if any jit bindings have been created for this key.
-      for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
-        @SuppressWarnings("unchecked")
-        BindingImpl<T> jitBinding = (BindingImpl<T>) injector.jitBindings.get(key);
-        if(jitBinding != null) {
-          return jitBinding;
+      jitBinding = getJitBinding(key);
+      if (jitBinding != null) {
+        if (outermost) {
+          publishJitBinding(key, jitBinding);
         }
+        return jitBinding;
       }
     }
 
@@ -241,24 +259,24 @@ final class InjectorImpl implements Injector, Lookups {
       throws ErrorsException {
 
     boolean jitOverride = isProvider(key) || isTypeLiteral(key) || isMembersInjector(key);
+
+    // Most lookups find a JIT binding that was created earlier, so try that without locking.
+    BindingImpl<T> binding = getInitializedJitBinding(key);
+    if (binding != null) {
+      return checkJitAllowed(key, binding, errors, jitType, jitOverride);
+    }
+
+    // If we're not already creating bindings, whatever we return below is fully initialized.
+    boolean outermost = !Thread.holdsLock(state.lock());
     synchronized (state.lock()) {
       // first try to find a JIT binding that we've already created
-      for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
-        @SuppressWarnings("unchecked") // we only store bindings that match their key
-        BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
-
-        if (binding != null) {
-          // If we found a JIT binding and we don't allow them,
-          // fail.  (But allow bindings created through TypeConverters.)
-          if (options.jitDisabled
-              && jitType == JitLimitation.NO_JIT
-              && !jitOverride
-              && !(binding instanceof ConvertedConstantBindingImpl)) {
-            throw errors.jitDisabled(key).toException();
-          } else {
-            return binding;
-          }
+      binding = getJitBinding(key);
+      if (binding != null) {
+        binding = checkJitAllowed(key, binding, errors, jitType, jitOverride);
+        if (outermost) {
+          publishJitBinding(key, binding);
         }
+        return binding;
       }
 
       // If we previously failed creating this JIT binding and our Errors has
@@ -278,10 +296,72 @@ final class InjectorImpl implements Injector, Lookups {
       if (failedJitBindings.contains(key) && errors.hasErrors()) {
         throw errors.toException();
       }
-      return createJustInTimeBindingRecursive(key, errors, options.jitDisabled, jitType);
+      binding = createJustInTimeBindingRecursive(key, errors, options.jitDisabled, jitType);
+      if (outermost) {
+        publishJitBinding(key, binding);
+      }
+      return binding;
     } // end synchronized(state.lock())
   }
 
+  /**
+   * Returns the JIT binding for {@code key} from this injector or its ancestors, including
+   * bindings that are still being initialized. Callers must hold state.lock().
+   */
+  private <T> BindingImpl<T> getJitBinding(Key<T> key) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the fully initialized JIT binding for {@code key} from this injector or its ancestors.
+   * This doesn't require state.lock().
+   */
+  private <T> BindingImpl<T> getInitializedJitBinding(Key<T> key) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = (BindingImpl<T>) injector.initializedJitBindings.get(key);
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Makes {@code binding} visible to lookups that don't lock. Callers must hold state.lock() and
+   * must not be in the middle of creating another JIT binding.
+   */
+  private void publishJitBinding(Key<?> key, BindingImpl<?> binding) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      if (injector.jitBindings.get(key) == binding) {
+        injector.initializedJitBindings.put(key, binding);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns {@code binding}, unless it was found for an injector that has disabled JIT bindings
+   * and the lookup doesn't allow it. (But bindings created through TypeConverters are allowed.)
+   */
+  private <T> BindingImpl<T> checkJitAllowed(Key<T> key, BindingImpl<T> binding, Errors errors,
+      JitLimitation jitType, boolean jitOverride) throws ErrorsException {
+    if (options.jitDisabled
+        && jitType == JitLimitation.NO_JIT
+        && !jitOverride
+        && !(binding instanceof ConvertedConstantBindingImpl)) {
+      throw errors.jitDisabled(key).toException();
+    }
+    return binding;
+  }
+
   /** Returns true if the key type is Provider (but not a subclass of Provider). */
   private static boolean isProvider(Key<?> key) {
     return key.getTypeLiteral().getRawType().equals(Provider.class);
@@ -598,6 +678,7 @@ final class InjectorImpl implements Injector, Lookups {
   private void removeFailedJitBinding(Binding<?> binding, InjectionPoint ip) {
     failedJitBindings.add(binding.getKey());
     jitBindings.remove(binding.getKey());
+    initializedJitBindings.remove(binding.getKey());
     membersInjectorStore.remove(binding.getKey().getTypeLiteral());
     provisionListenerStore.remove(binding);
     if(ip != null) {
@@ -709,7 +790,7 @@ final class InjectorImpl implements Injector, Lookups {
     Key<? extends Provider<T>> providerKey = (Key<? extends Provider<T>>) Key.get(providerType);
     ProvidedByInternalFactory<T> internalFactory =
         new ProvidedByInternalFactory<T>(rawType, providerType,
-            providerKey, !options.disableCircularProxies);
+            providerKey, !options.disableCircularProxies, newConstructionSlot());
     Object source = rawType;
     BindingImpl<T> binding = LinkedProviderBindingImpl.createWithInitializer(
         this,
@@ -776,8 +857,9 @@ final class InjectorImpl implements Injector, Lookups {
    */
   private <T> BindingImpl<T> createJustInTimeBindingRecursive(Key<T> key, Errors errors,
       boolean jitDisabled, JitLimitation jitType) throws ErrorsException {
-    // ask the parent to create the JIT binding
-    if (parent != null) {
+    // ask the parent to create the JIT binding, unless it's certain to refuse because a child
+    // injector (possibly this one) already bound the key
+    if (parent != null && !parent.state.isBlacklisted(key)) {
       try {
         return parent.createJustInTimeBindingRecursive(key, new Errors(), jitDisabled,
             parent.options.jitDisabled ? JitLimitation.NO_JIT : jitType);
@@ -785,14 +867,7 @@ final class InjectorImpl implements Injector, Lookups {
       }
     }
 
-    // Retrieve the sources before checking for blacklisting to guard against sources becoming null
-    // due to a full GC happening after calling state.isBlacklisted and
-    // state.getSourcesForBlacklistedKey.
-    // TODO(user): Consolidate these two APIs.
-    Set<Object> sources = state.getSourcesForBlacklistedKey(key);
-    if (state.isBlacklisted(key)) {
-      throw errors.childBindingAlreadySet(key, sources).toException();
-    }
+    checkNotBlacklisted(key, errors);
 
     BindingImpl<T> binding = createJustInTimeBinding(key, errors, jitDisabled, jitType);
     state.parent().blacklist(key, state, binding.getSource());
@@ -800,6 +875,22 @@ final class InjectorImpl implements Injector, Lookups {
     return binding;
   }
 
+  /**
+   * Fails if a child injector has bound {@code key}, which keeps this injector from creating a
+   * just-in-time binding for it.
+   */
+  private void checkNotBlacklisted(Key<?> key, Errors errors) throws ErrorsException {
+    if (state.isBlacklisted(key)) {
+      // The sources are null if a full GC collected the child injectors after the check, in which
+      // case the key isn't blacklisted anymore.
+      // TODO(user): Consolidate these two APIs.
+      Set<Object> sources = state.getSourcesForBlacklistedKey(key);
+      if (sources != null) {
+        throw errors.childBindingAlreadySet(key, sources).toException();
+      }
+    }
+  }
+
   /**
    * Returns a new just-in-time binding created by resolving {@code key}. The strategies used to
    * create just-in-time bindings are:
@@ -817,14 +908,7 @@ final class InjectorImpl implements Injector, Lookups {
       boolean jitDisabled, JitLimitation jitType) throws ErrorsException {
     int numErrorsBefore = errors.size();
 
-    // Retrieve the sources before checking for blacklisting to guard against sources becoming null
-    // due to a full GC happening after calling state.isBlacklisted and
-    // state.getSourcesForBlacklistedKey.
-    // TODO(user): Consolidate these two APIs.
-    Set<Object> sources = state.getSourcesForBlacklistedKey(key);
-    if (state.isBlacklisted(key)) {
-      throw errors.childBindingAlreadySet(key, sources).toException();
-    }
+    checkNotBlacklisted(key, errors);
 
     // Handle cases where T is a Provider<?>.
     if (isProvider(key)) {
@@ -967,6 +1051,12 @@ final class InjectorImpl implements Injector, Lookups {
   /** Cached field and method injectors for each type. */
   MembersInjectorStore membersInjectorStore;
 
+  /** Finds injection points, possibly in parallel while the injector is being created. */
+  InjectionPointScanner injectionPointScanner = InjectionPointScanner.DIRECT;
+
+  /** How long creating this injector took, or null if it wasn't profiled. */
+  InjectorCreationProfile creationProfile;
+
   /** Cached provision listener callbacks for each key. */
   ProvisionListenerCallbackStore provisionListenerStore;
 
@@ -999,23 +1089,27 @@ final class InjectorImpl implements Injector, Lookups {
 
     return new Provider<T>() {
       public T get() {
-        final Errors errors = new Errors(dependency);
+        // This is the hot path for getInstance() and injected providers, so it enters the context
+        // directly rather than through callInContext(), and errors are only attributed to the
+        // dependency once something has failed.
+        InternalContext context = localContext.get();
+        Errors errors = context.enter() ? context.getReusableErrors() : new Errors();
         try {
-          T t = callInContext(new ContextualCallable<T>() {
-            public T call(InternalContext context) throws ErrorsException {
-              Dependency previous = context.pushDependency(dependency, binding.getSource());
-              try {
-                return binding.getInternalFactory().get(errors, context, dependency, false);
-              } finally {
-                context.popStateAndSetDependency(previous);
-              }
+          Dependency previous = context.pushDependency(dependency, binding.getSource());
+          try {
+            T t = binding.getInternalFactory().get(errors, context, dependency, false);
+            if (!errors.hasErrors()) {
+              return t;
             }
-          });
-          errors.throwIfNewErrors(0);
-          return t;
+          } finally {
+            context.popStateAndSetDependency(previous);
+          }
         } catch (ErrorsException e) {
-          throw new ProvisionException(errors.merge(e.getErrors()).getMessages());
+          errors.merge(e.getErrors());
+        } finally {
+          context.exit();
         }
+        throw new ProvisionException(new Errors(dependency).merge(errors).getMessages());
       }
 
       @Override public String toString() {
@@ -1043,26 +1137,33 @@ final class InjectorImpl implements Injector, Lookups {
     return getProvider(type).get();
   }
 
-  private final ThreadLocal<Object[]> localContext;
+  /** The context of the provision in progress on each thread. Shared with child injectors. */
+  private final ThreadLocal<InternalContext> localContext;
 
-  /** Looks up thread local context. Creates (and removes) a new context if necessary. */
+  /**
+   * The number of construction slots allocated so far. Child injectors share their parent's
+   * context, so they allocate from the same sequence, which spreads their slots over its table.
+   */
+  private final AtomicInteger constructionSlots;
+
+  /**
+   * Returns a new hash for the construction contexts of this injector's {@link InternalContext}.
+   * Each constructor or provider that can be part of a circular dependency gets one. Slots are
+   * never given back, but the context only holds the constructions in progress, so it doesn't grow
+   * with the number of slots, and wrapping past {@code Integer.MAX_VALUE} is harmless.
+   */
+  int newConstructionSlot() {
+    return constructionSlots.getAndIncrement();
+  }
+
+  /** Looks up the thread local context and calls {@code callable} with it. */
   <T> T callInContext(ContextualCallable<T> callable) throws ErrorsException {
-    Object[] reference = localContext.get();
-    if (reference == null) {
-      reference = new Object[1];
-      localContext.set(reference);
-    }
-    if (reference[0] == null) {
-      reference[0] = new InternalContext();
-      try {
-        return callable.call((InternalContext)reference[0]);
-      } finally {
-        // Only clear the context if this call created it.
-        reference[0] = null;
-      }
-    } else {
-      // Someone else will clean up this context.
-      return callable.call((InternalContext)reference[0]);
+    InternalContext context = localContext.get();
+    context.enter();
+    try {
+      return callable.call(context);
+    } finally {
+      context.exit();
     }
   }
 
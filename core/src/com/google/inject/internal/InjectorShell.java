@@ -30,7 +30,6 @@ import com.google.inject.Singleton;
 import com.google.inject.Stage;
 import com.google.inject.internal.InjectorImpl.InjectorOptions;
 import com.google.inject.internal.util.SourceProvider;
-import com.google.inject.internal.util.Stopwatch;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.Element;
 import com.google.inject.spi.Elements;
@@ -122,7 +121,8 @@ final class InjectorShell {
     List<InjectorShell> build(
         Initializer initializer,
         ProcessedBindingData bindingData,
-        Stopwatch stopwatch,
+        InjectionPointScanner injectionPointScanner,
+        InjectorCreationProfiler profiler,
         Errors errors) {
       checkState(stage != null, "Stage not initialized");
       checkState(privateElements == null || parent != null, "PrivateElements with no parent");
@@ -133,6 +133,11 @@ final class InjectorShell {
         modules.add(0, new RootModule());
       }
       elements.addAll(Elements.getElements(stage, modules));
+
+      // private environments are scanned with their enclosing elements
+      if (privateElements == null) {
+        injectionPointScanner.scan(elements);
+      }
       
       // Look for injector-changing options
       InjectorOptionsProcessor optionsProcessor = new InjectorOptionsProcessor(errors);
@@ -140,6 +145,7 @@ final class InjectorShell {
       options = optionsProcessor.getOptions(stage, options);
       
       InjectorImpl injector = new InjectorImpl(parent, state, options);
+      injector.injectionPointScanner = injectionPointScanner;
       if (privateElements != null) {
         privateElements.initInjector(injector);
       }
@@ -149,13 +155,13 @@ final class InjectorShell {
         TypeConverterBindingProcessor.prepareBuiltInConverters(injector);
       }
 
-      stopwatch.resetAndLog("Module execution");
+      profiler.endPhase("Module execution");
 
       new MessageProcessor(errors).process(injector, elements);
 
       /*if[AOP]*/
       new InterceptorBindingProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Interceptors creation");
+      profiler.endPhase("Interceptors creation");
       /*end[AOP]*/
 
       new ListenerBindingProcessor(errors).process(injector, elements);
@@ -165,13 +171,13 @@ final class InjectorShell {
           injector.state.getProvisionListenerBindings();
       injector.provisionListenerStore =
           new ProvisionListenerCallbackStore(provisionListenerBindings);
-      stopwatch.resetAndLog("TypeListeners & ProvisionListener creation");
+      profiler.endPhase("TypeListeners & ProvisionListener creation");
 
       new ScopeBindingProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Scopes creation");
+      profiler.endPhase("Scopes creation");
 
       new TypeConverterBindingProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Converters creation");
+      profiler.endPhase("Converters creation");
 
       bindStage(injector, stage);
       bindInjector(injector);
@@ -182,7 +188,7 @@ final class InjectorShell {
       // and need all their other dependencies set up ahead of time.
       new BindingProcessor(errors, initializer, bindingData).process(injector, elements);
       new UntargettedBindingProcessor(errors, bindingData).process(injector, elements);
-      stopwatch.resetAndLog("Binding creation");
+      profiler.endPhase("Binding creation");
 
       List<InjectorShell> injectorShells = Lists.newArrayList();
       injectorShells.add(new InjectorShell(this, elements, injector));
@@ -191,9 +197,10 @@ final class InjectorShell {
       PrivateElementProcessor processor = new PrivateElementProcessor(errors);
       processor.process(injector, elements);
       for (Builder builder : processor.getInjectorShellBuilders()) {
-        injectorShells.addAll(builder.build(initializer, bindingData, stopwatch, errors));
+        injectorShells.addAll(builder.build(
+            initializer, bindingData, injectionPointScanner, profiler, errors));
       }
-      stopwatch.resetAndLog("Private environment creation");
+      profiler.endPhase("Private environment creation");
 
       return injectorShells;
     }
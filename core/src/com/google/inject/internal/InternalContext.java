@@ -18,24 +18,37 @@ package com.google.inject.internal;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.inject.Key;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.DependencyAndSource;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Internal context. Used to coordinate injections and support circular
- * dependencies.
+ * dependencies. This is public so that {@link InjectionPlan}s, which may be loaded outside of this
+ * package, can use it.
  *
  * @author crazybob@google.com (Bob Lee)
  */
-final class InternalContext {
+public final class InternalContext {
 
-  private Map<Object, ConstructionContext<?>> constructionContexts = Maps.newHashMap();
+  private static final int INITIAL_CONSTRUCTION_CAPACITY = 16;
+
+  /**
+   * The constructors and providers with a construction in progress, in an open-addressed table
+   * keyed by identity and hashed by their construction slot. Only the constructions on the current
+   * call stack are in it, so it stays as small as the deepest chain of nested constructions no
+   * matter how many injectors have allocated slots.
+   */
+  private Object[] constructionOwners = new Object[INITIAL_CONSTRUCTION_CAPACITY];
+  private int[] constructionSlots = new int[INITIAL_CONSTRUCTION_CAPACITY];
+  private ConstructionContext<?>[] constructionContexts =
+      new ConstructionContext<?>[INITIAL_CONSTRUCTION_CAPACITY];
+  private int constructionCount;
+
+  /** Construction contexts that have been released and can be reused by any owner. */
+  private final List<ConstructionContext<?>> unusedConstructionContexts = Lists.newArrayList();
 
   /** Keeps track of the type that is currently being requested for injection. */
   private Dependency<?> dependency;
@@ -49,17 +62,139 @@ final class InternalContext {
    */
   private final List<Object> state = Lists.newArrayList();
 
+  /** The number of calls using this context that haven't returned yet. */
+  private int enterCount;
+
+  /**
+   * Errors for the outermost provision on this thread. They're reused until they record a failure
+   * so that successful provisions don't allocate any.
+   */
+  private Errors errors = new Errors();
+
+  /**
+   * Marks the start of a call using this context.
+   *
+   * @return true if this is the outermost call on this thread
+   */
+  boolean enter() {
+    return enterCount++ == 0;
+  }
+
+  /**
+   * Marks the end of a call using this context. When the outermost call returns, anything left over
+   * from that provision is cleared so the context can be reused. Construction contexts are released
+   * as each construction finishes, so there's nothing to clear for them.
+   */
+  void exit() {
+    if (--enterCount == 0) {
+      if (errors.hasErrors()) {
+        errors = new Errors();
+      }
+      state.clear();
+      dependency = null;
+      if (constructionOwners.length > INITIAL_CONSTRUCTION_CAPACITY && constructionCount == 0) {
+        // give back the space of an unusually deep provision
+        constructionOwners = new Object[INITIAL_CONSTRUCTION_CAPACITY];
+        constructionSlots = new int[INITIAL_CONSTRUCTION_CAPACITY];
+        constructionContexts = new ConstructionContext<?>[INITIAL_CONSTRUCTION_CAPACITY];
+        unusedConstructionContexts.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns source-less errors that belong to the outermost call. Only that call may use them, and
+   * only between {@link #enter} and {@link #exit}.
+   */
+  Errors getReusableErrors() {
+    return errors;
+  }
+
+  /**
+   * Returns the construction context of {@code owner}, a constructor or provider whose slot was
+   * allocated with {@link InjectorImpl#newConstructionSlot}. Whoever starts a construction with it
+   * must call {@link #releaseConstructionContext} once that construction has finished.
+   */
   @SuppressWarnings("unchecked")
-  public <T> ConstructionContext<T> getConstructionContext(Object key) {
-    ConstructionContext<T> constructionContext
-        = (ConstructionContext<T>) constructionContexts.get(key);
-    if (constructionContext == null) {
-      constructionContext = new ConstructionContext<T>();
-      constructionContexts.put(key, constructionContext);
+  public <T> ConstructionContext<T> getConstructionContext(Object owner, int slot) {
+    int mask = constructionOwners.length - 1;
+    int i = slot & mask;
+    for (Object existing; (existing = constructionOwners[i]) != null; i = (i + 1) & mask) {
+      if (existing == owner) {
+        return (ConstructionContext<T>) constructionContexts[i];
+      }
+    }
+    if ((constructionCount + 1) * 2 > constructionOwners.length) {
+      growConstructionContexts();
+      return getConstructionContext(owner, slot);
     }
+    ConstructionContext<T> constructionContext = unusedConstructionContexts.isEmpty()
+        ? new ConstructionContext<T>()
+        : (ConstructionContext<T>) unusedConstructionContexts.remove(
+            unusedConstructionContexts.size() - 1);
+    constructionOwners[i] = owner;
+    constructionSlots[i] = slot;
+    constructionContexts[i] = constructionContext;
+    constructionCount++;
     return constructionContext;
   }
 
+  /**
+   * Frees the construction context of {@code owner} so that it can be reused. Its construction
+   * must have finished and its current reference must have been removed.
+   */
+  public void releaseConstructionContext(Object owner, int slot) {
+    int mask = constructionOwners.length - 1;
+    int i = slot & mask;
+    while (constructionOwners[i] != owner) {
+      if (constructionOwners[i] == null) {
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    unusedConstructionContexts.add(constructionContexts[i]);
+    constructionCount--;
+    // Shift back the entries after the freed one that would no longer be found past the gap.
+    for (int j = (i + 1) & mask; constructionOwners[j] != null; j = (j + 1) & mask) {
+      int home = constructionSlots[j] & mask;
+      boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+      if (!reachable) {
+        constructionOwners[i] = constructionOwners[j];
+        constructionSlots[i] = constructionSlots[j];
+        constructionContexts[i] = constructionContexts[j];
+        i = j;
+      }
+    }
+    constructionOwners[i] = null;
+    constructionContexts[i] = null;
+  }
+
+  private void growConstructionContexts() {
+    Object[] owners = constructionOwners;
+    int[] slots = constructionSlots;
+    ConstructionContext<?>[] contexts = constructionContexts;
+    constructionOwners = new Object[owners.length * 2];
+    constructionSlots = new int[owners.length * 2];
+    constructionContexts = new ConstructionContext<?>[owners.length * 2];
+    int mask = constructionOwners.length - 1;
+    for (int j = 0; j < owners.length; j++) {
+      if (owners[j] != null) {
+        int i = slots[j] & mask;
+        while (constructionOwners[i] != null) {
+          i = (i + 1) & mask;
+        }
+        constructionOwners[i] = owners[j];
+        constructionSlots[i] = slots[j];
+        constructionContexts[i] = contexts[j];
+      }
+    }
+  }
+
+  /** Returns the number of entries the construction context table has room for. */
+  int getConstructionCapacity() {
+    return constructionOwners.length;
+  }
+
   public Dependency<?> getDependency() {
     return dependency;
   }
@@ -19,11 +19,12 @@ package com.google.inject.internal;
 import com.google.inject.spi.Dependency;
 
 /**
- * Creates objects which will be injected.
+ * Creates objects which will be injected. This is public so that {@link InjectionPlan}s, which may
+ * be loaded outside of this package, can call it.
  *
  * @author crazybob@google.com (Bob Lee)
  */
-interface InternalFactory<T> {
+public interface InternalFactory<T> {
 
   /**
    * Creates an object to be injected.
@@ -19,6 +19,129 @@ public class InternalFlags {
     COMPLETE
   }
 
+  /**
+   * The options for invoking user constructors and methods.
+   */
+  public enum InvocationOption {
+    /**
+     * Generate a FastClass to invoke non-private members, and use reflection for the rest (Default)
+     */
+    FAST_CLASS,
+    /**
+     * Use reflection for every member. This skips generating a class per injected type, which
+     * makes injector creation faster and uses less permgen, at the cost of slower invocations until
+     * the JVM optimizes the reflective calls.
+     */
+    REFLECTION
+  }
+
+  /**
+   * Returns true if constructor injections should be compiled to bytecode, which is enabled with
+   * {@code -Dguice_compile_injection_plans=true}. See {@link InjectionPlan}.
+   */
+  public static boolean isCompileInjectionPlansEnabled() {
+    return Boolean.parseBoolean(System.getProperty("guice_compile_injection_plans"));
+  }
+
+  /**
+   * Returns true if injectors should record how long each part of their creation took, which is
+   * enabled with {@code -Dguice_profile_injector_creation=true}. See {@link
+   * com.google.inject.spi.InjectorCreationProfile}.
+   */
+  public static boolean isProfileInjectorCreationEnabled() {
+    return Boolean.parseBoolean(System.getProperty("guice_profile_injector_creation"));
+  }
+
+  /**
+   * Returns true if injectors should count and time the provisions of each binding, which is
+   * enabled with {@code -Dguice_provision_metrics=true}. See {@link
+   * com.google.inject.spi.ProvisionMetrics}.
+   */
+  public static boolean isProvisionMetricsEnabled() {
+    return Boolean.parseBoolean(System.getProperty("guice_provision_metrics"));
+  }
+
+  /**
+   * Returns true if the stack traces of bindings should be captured without being converted to
+   * {@link StackTraceElement StackTraceElements}, which is enabled with {@code
+   * -Dguice_lazy_element_sources=true}. The element's source is found in the captured stack when
+   * an error message or the SPI asks for it. This makes configuring modules faster, but keeps the
+   * captured stacks of elements whose source is never asked for.
+   */
+  public static boolean isLazyElementSourcesEnabled() {
+    return Boolean.parseBoolean(System.getProperty("guice_lazy_element_sources"));
+  }
+
+  /**
+   * Returns the file that stores the line numbers of classes between runs, set with {@code
+   * -Dguice_line_number_index=/path/to/file}, or null to read them from each class's bytecode in
+   * every run. Only AOP builds read line numbers.
+   */
+  public static String getLineNumberIndexFile() {
+    String flag = System.getProperty("guice_line_number_index");
+    return (flag == null || flag.length() == 0) ? null : flag;
+  }
+
+  /**
+   * Returns the file that stores the injection points of types between runs, set with {@code
+   * -Dguice_injector_image=/path/to/file}, or null to find them with reflection in every run. See
+   * {@link InjectorImage}.
+   */
+  public static String getInjectorImageFile() {
+    String flag = System.getProperty("guice_injector_image");
+    return (flag == null || flag.length() == 0) ? null : flag;
+  }
+
+  /**
+   * Returns how Guice invokes user constructors and methods, set with {@code
+   * -Dguice_invocation_option=REFLECTION}. Only AOP builds can generate FastClasses.
+   */
+  public static InvocationOption getInvocationOption() {
+    String flag = System.getProperty("guice_invocation_option");
+    try {
+      return (flag == null || flag.length() == 0)
+          ? InvocationOption.FAST_CLASS
+          : InvocationOption.valueOf(flag);
+    } catch (IllegalArgumentException e) {
+      logger.warning(flag
+          + " is not a valid flag value for guice_invocation_option. "
+          + " Values must be one of " + Arrays.asList(InvocationOption.values()));
+      return InvocationOption.FAST_CLASS;
+    }
+  }
+
+  /**
+   * Returns the number of threads that scan types for injection points while an injector is being
+   * created, set with {@code -Dguice_injector_creation_threads=N}. One, the default, scans each
+   * type on the creating thread when it's needed. See {@link InjectionPointScanner}.
+   */
+  public static int getInjectorCreationThreads() {
+    return getThreads("guice_injector_creation_threads");
+  }
+
+  /**
+   * Returns the number of threads that load eager singletons, set with {@code
+   * -Dguice_eager_singleton_threads=N}. One, the default, loads them on the creating thread in
+   * binding order. See {@link EagerSingletonLoader}.
+   */
+  public static int getEagerSingletonThreads() {
+    return getThreads("guice_eager_singleton_threads");
+  }
+
+  private static int getThreads(String name) {
+    String flag = System.getProperty(name);
+    if (flag == null || flag.length() == 0) {
+      return 1;
+    }
+    try {
+      return Math.max(Integer.parseInt(flag), 1);
+    } catch (NumberFormatException e) {
+      logger.warning(flag
+          + " is not a valid flag value for " + name + ". "
+          + " Values must be a number of threads");
+      return 1;
+    }
+  }
 
   public static IncludeStackTraceOption getIncludeStackTraceOption() {
     String flag = System.getProperty("guice_include_stack_traces");
@@ -17,7 +17,9 @@
 package com.google.inject.internal;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.inject.Binding;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -27,8 +29,9 @@ import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
-import com.google.inject.internal.util.Stopwatch;
 import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectorCreationProfile;
+import com.google.inject.spi.ProvisionMetrics;
 import com.google.inject.spi.TypeConverterBinding;
 
 import java.lang.annotation.Annotation;
@@ -58,10 +61,11 @@ import java.util.Set;
  */
 public final class InternalInjectorCreator {
 
-  private final Stopwatch stopwatch = new Stopwatch();
+  private final InjectorCreationProfiler profiler = new InjectorCreationProfiler();
   private final Errors errors = new Errors();
 
   private final Initializer initializer = new Initializer();
+  private final InjectionPointScanner injectionPointScanner = InjectionPointScanner.create();
   private final ProcessedBindingData bindingData;
   private final InjectionRequestProcessor injectionRequestProcessor;
 
@@ -98,16 +102,28 @@ public final class InternalInjectorCreator {
       throw new AssertionError("Already built, builders are not reusable.");
     }
 
-    // Synchronize while we're building up the bindings and other injector state. This ensures that
-    // the JIT bindings in the parent injector don't change while we're being built
-    synchronized (shellBuilder.lock()) {
-      shells = shellBuilder.build(initializer, bindingData, stopwatch, errors);
-      stopwatch.resetAndLog("Injector construction");
+    profiler.start();
+    try {
+      // Synchronize while we're building up the bindings and other injector state. This ensures
+      // that the JIT bindings in the parent injector don't change while we're being built
+      synchronized (shellBuilder.lock()) {
+        try {
+          shells = shellBuilder.build(
+              initializer, bindingData, injectionPointScanner, profiler, errors);
+          profiler.endPhase("Injector construction");
 
-      initializeStatically();
-    }
+          initializeStatically();
+        } finally {
+          stopScanning();
+        }
+      }
 
-    injectDynamically();
+      injectDynamically();
+      injectionPointScanner.saveImage();
+    } finally {
+      profiler.stop();
+    }
+    shells.get(0).getInjector().creationProfile = profiler.getProfile();
 
     if (shellBuilder.getStage() == Stage.TOOL) {
       // wrap the primaryInjector in a ToolStageInjector
@@ -121,30 +137,30 @@ public final class InternalInjectorCreator {
   /** Initialize and validate everything. */
   private void initializeStatically() {
     bindingData.initializeBindings();
-    stopwatch.resetAndLog("Binding initialization");
+    profiler.endPhase("Binding initialization");
 
     for (InjectorShell shell : shells) {
       shell.getInjector().index();
     }
-    stopwatch.resetAndLog("Binding indexing");
+    profiler.endPhase("Binding indexing");
 
     injectionRequestProcessor.process(shells);
-    stopwatch.resetAndLog("Collecting injection requests");
+    profiler.endPhase("Collecting injection requests");
 
     bindingData.runCreationListeners(errors);
-    stopwatch.resetAndLog("Binding validation");
+    profiler.endPhase("Binding validation");
 
     injectionRequestProcessor.validate();
-    stopwatch.resetAndLog("Static validation");
+    profiler.endPhase("Static validation");
 
     initializer.validateOustandingInjections(errors);
-    stopwatch.resetAndLog("Instance member validation");
+    profiler.endPhase("Instance member validation");
 
     new LookupProcessor(errors).process(shells);
     for (InjectorShell shell : shells) {
       ((DeferredLookups) shell.getInjector().lookups).initialize(errors);
     }
-    stopwatch.resetAndLog("Provider verification");
+    profiler.endPhase("Provider verification");
 
     for (InjectorShell shell : shells) {
       if (!shell.getElements().isEmpty()) {
@@ -155,6 +171,40 @@ public final class InternalInjectorCreator {
     errors.throwCreationExceptionIfErrorsExist();
   }
 
+  /**
+   * Stops finding injection points in parallel. Just-in-time bindings created from here on scan
+   * their types directly.
+   */
+  private void stopScanning() {
+    injectionPointScanner.shutdown();
+    if (shells != null) {
+      for (InjectorShell shell : shells) {
+        shell.getInjector().injectionPointScanner = injectionPointScanner.direct();
+      }
+    }
+  }
+
+  /** Returns the profile of the creation of {@code injector}, or null if it wasn't profiled. */
+  public static InjectorCreationProfile getCreationProfile(Injector injector) {
+    InjectorImpl injectorImpl = unwrap(injector);
+    return injectorImpl != null ? injectorImpl.creationProfile : null;
+  }
+
+  /** Returns the metrics of each binding that {@code injector} has provisioned. */
+  public static Map<Key<?>, ProvisionMetrics> getProvisionMetrics(Injector injector) {
+    InjectorImpl injectorImpl = unwrap(injector);
+    return injectorImpl != null
+        ? injectorImpl.provisionListenerStore.getMetrics()
+        : ImmutableMap.<Key<?>, ProvisionMetrics>of();
+  }
+
+  private static InjectorImpl unwrap(Injector injector) {
+    if (injector instanceof ToolStageInjector) {
+      injector = ((ToolStageInjector) injector).delegateInjector;
+    }
+    return injector instanceof InjectorImpl ? (InjectorImpl) injector : null;
+  }
+
   /**
    * Returns the injector being constructed. This is not necessarily the root injector.
    */
@@ -169,17 +219,29 @@ public final class InternalInjectorCreator {
    */
   private void injectDynamically() {
     injectionRequestProcessor.injectMembers();
-    stopwatch.resetAndLog("Static member injection");
+    profiler.endPhase("Static member injection");
 
     initializer.injectAll(errors);
-    stopwatch.resetAndLog("Instance injection");
+    profiler.endPhase("Instance injection");
     errors.throwCreationExceptionIfErrorsExist();
 
     if(shellBuilder.getStage() != Stage.TOOL) {
-      for (InjectorShell shell : shells) {
-        loadEagerSingletons(shell.getInjector(), shellBuilder.getStage(), errors);
+      int threads = InternalFlags.getEagerSingletonThreads();
+      if (threads > 1) {
+        EagerSingletonLoader loader = new EagerSingletonLoader();
+        for (InjectorShell shell : shells) {
+          InjectorImpl injector = shell.getInjector();
+          for (BindingImpl<?> binding : getEagerSingletons(injector, shellBuilder.getStage())) {
+            loader.add(injector, binding);
+          }
+        }
+        loader.load(threads, errors);
+      } else {
+        for (InjectorShell shell : shells) {
+          loadEagerSingletons(shell.getInjector(), shellBuilder.getStage(), errors);
+        }
       }
-      stopwatch.resetAndLog("Preloading singletons");
+      profiler.endPhase("Preloading singletons");
     }
     errors.throwCreationExceptionIfErrorsExist();
   }
@@ -189,34 +251,49 @@ public final class InternalInjectorCreator {
    * while we're binding these singletons are not be eager.
    */
   void loadEagerSingletons(InjectorImpl injector, Stage stage, final Errors errors) {
+    for (BindingImpl<?> binding : getEagerSingletons(injector, stage)) {
+      loadEagerSingleton(injector, binding, errors);
+    }
+  }
+
+  /** Returns the injector's eager singletons, or all of its singletons in Stage.PRODUCTION. */
+  private List<BindingImpl<?>> getEagerSingletons(InjectorImpl injector, Stage stage) {
     @SuppressWarnings("unchecked") // casting Collection<Binding> to Collection<BindingImpl> is safe
     Iterable<BindingImpl<?>> candidateBindings = ImmutableList.copyOf(Iterables.concat(
         (Collection) injector.state.getExplicitBindingsThisLevel().values(),
         injector.jitBindings.values()));
-    for (final BindingImpl<?> binding : candidateBindings) {
+    List<BindingImpl<?>> eagerSingletons = Lists.newArrayList();
+    for (BindingImpl<?> binding : candidateBindings) {
       if (isEagerSingleton(injector, binding, stage)) {
-        try {
-          injector.callInContext(new ContextualCallable<Void>() {
-            Dependency<?> dependency = Dependency.get(binding.getKey());
-            public Void call(InternalContext context) {
-              Dependency previous = context.pushDependency(dependency, binding.getSource());
-              Errors errorsForBinding = errors.withSource(dependency);
-              try {
-                binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
-              } catch (ErrorsException e) {
-                errorsForBinding.merge(e.getErrors());
-              } finally {
-                context.popStateAndSetDependency(previous);
-              }
-
-              return null;
-            }
-          });
-        } catch (ErrorsException e) {
-          throw new AssertionError();
-        }
+        eagerSingletons.add(binding);
       }
     }
+    return eagerSingletons;
+  }
+
+  /** Gets the instance of {@code binding}, recording any failure in {@code errors}. */
+  static void loadEagerSingleton(
+      InjectorImpl injector, final BindingImpl<?> binding, final Errors errors) {
+    try {
+      injector.callInContext(new ContextualCallable<Void>() {
+        Dependency<?> dependency = Dependency.get(binding.getKey());
+        public Void call(InternalContext context) {
+          Dependency previous = context.pushDependency(dependency, binding.getSource());
+          Errors errorsForBinding = errors.withSource(dependency);
+          try {
+            binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
+          } catch (ErrorsException e) {
+            errorsForBinding.merge(e.getErrors());
+          } finally {
+            context.popStateAndSetDependency(previous);
+          }
+
+          return null;
+        }
+      });
+    } catch (ErrorsException e) {
+      throw new AssertionError();
+    }
   }
 
   private boolean isEagerSingleton(InjectorImpl injector, BindingImpl<?> binding, Stage stage) {
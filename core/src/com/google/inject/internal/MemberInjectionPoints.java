@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Throwables;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.InjectionPoint;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Creates the injection point of a single field or method without scanning its type. Only the
+ * {@link InjectorImage} needs this, so it isn't part of the SPI: this calls the package-private
+ * factory of {@link InjectionPoint}, which can call its own constructors.
+ */
+final class MemberInjectionPoints {
+
+  private static final Method FOR_MEMBER;
+
+  static {
+    try {
+      FOR_MEMBER = InjectionPoint.class.getDeclaredMethod(
+          "forMember", Member.class, TypeLiteral.class);
+      FOR_MEMBER.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private MemberInjectionPoints() {}
+
+  /**
+   * Returns a new injection point for the field or method {@code member} of {@code type}, which
+   * must be annotated with {@code @Inject}.
+   *
+   * @throws com.google.inject.ConfigurationException if the member is malformed
+   * @throws IllegalArgumentException if the member isn't an injectable field or method
+   */
+  static InjectionPoint forMember(Member member, TypeLiteral<?> type) {
+    try {
+      return (InjectionPoint) FOR_MEMBER.invoke(null, member, type);
+    } catch (InvocationTargetException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
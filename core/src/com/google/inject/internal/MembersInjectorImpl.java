@@ -135,12 +135,17 @@ final class MembersInjectorImpl<T> implements MembersInjector<T> {
 
     // TODO: There's no way to know if a user's MembersInjector wants toolable injections.
     if(!toolableOnly) {
-      for (MembersInjector<? super T> userMembersInjector : userMembersInjectors) {
-        try {
-          userMembersInjector.injectMembers(t);
-        } catch (RuntimeException e) {
-          errors.errorInUserInjector(userMembersInjector, typeLiteral, e);
-        }
+      injectUserMembers(t, errors);
+    }
+  }
+
+  /** Runs the members injectors that were registered by type listeners. */
+  void injectUserMembers(T t, Errors errors) {
+    for (MembersInjector<? super T> userMembersInjector : userMembersInjectors) {
+      try {
+        userMembersInjector.injectMembers(t);
+      } catch (RuntimeException e) {
+        errors.errorInUserInjector(userMembersInjector, typeLiteral, e);
       }
     }
   }
@@ -33,11 +33,17 @@ import javax.inject.Provider;
 abstract class ProviderInternalFactory<T> implements InternalFactory<T> {
   
   private final boolean allowProxy;
+  private final int constructionSlot;
   protected final Object source;
   
-  ProviderInternalFactory(Object source, boolean allowProxy) {
+  /**
+   * @param constructionSlot this factory's hash in the {@link InternalContext}'s table of
+   *     construction contexts, from {@link InjectorImpl#newConstructionSlot}
+   */
+  ProviderInternalFactory(Object source, boolean allowProxy, int constructionSlot) {
     this.source = checkNotNull(source, "source");
     this.allowProxy = allowProxy;
+    this.constructionSlot = constructionSlot;
   }
   
   protected T circularGet(final Provider<? extends T> provider, final Errors errors,
@@ -45,7 +51,8 @@ abstract class ProviderInternalFactory<T> implements InternalFactory<T> {
       ProvisionListenerStackCallback<T> provisionCallback)
       throws ErrorsException {    
     Class<?> expectedType = dependency.getKey().getTypeLiteral().getRawType();
-    final ConstructionContext<T> constructionContext = context.getConstructionContext(this);
+    final ConstructionContext<T> constructionContext =
+        context.getConstructionContext(this, constructionSlot);
 
     // We have a circular reference between constructors. Return a proxy.
     if (constructionContext.isConstructing()) {
@@ -59,21 +66,31 @@ abstract class ProviderInternalFactory<T> implements InternalFactory<T> {
       }
     }
 
+    ProvisionMetricsRecorder metrics = provisionCallback.getMetrics();
+    long start = metrics != null ? System.nanoTime() : 0;
+    boolean provisioned = false;
     // Optimization: Don't go through the callback stack if no one's listening.
     constructionContext.startConstruction();
     try {
+      T result;
       if (!provisionCallback.hasListeners()) {
-        return provision(provider, errors, dependency, constructionContext);
+        result = provision(provider, errors, dependency, constructionContext);
       } else {
-        return provisionCallback.provision(errors, context, new ProvisionCallback<T>() {
+        result = provisionCallback.provision(errors, context, new ProvisionCallback<T>() {
           public T call() throws ErrorsException {
             return provision(provider, errors, dependency, constructionContext);
           }
         });
       }
+      provisioned = true;
+      return result;
     } finally {
       constructionContext.removeCurrentReference();
       constructionContext.finishConstruction();
+      context.releaseConstructionContext(this, constructionSlot);
+      if (metrics != null) {
+        metrics.record(System.nanoTime() - start, !provisioned);
+      }
     }
   }
 
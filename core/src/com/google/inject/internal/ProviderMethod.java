@@ -54,14 +54,16 @@ public abstract class ProviderMethod<T> implements ProviderWithExtensionVisitor<
    *
    * <p>Ideally, we will use {@link FastClass} to invoke the actual method, since it is
    * significantly faster.  However, this will fail if the method is {@code private} or
-   * {@code protected}, since fastclass is subject to java access policies.
+   * {@code protected}, since fastclass is subject to java access policies. Reflection is also used
+   * when FastClasses are disabled with {@link InternalFlags#getInvocationOption}.
    */
   static <T> ProviderMethod<T> create(Key<T> key, Method method, Object instance,
       ImmutableSet<Dependency<?>> dependencies, List<Provider<?>> parameterProviders,
       Class<? extends Annotation> scopeAnnotation) {
     int modifiers = method.getModifiers();
     /*if[AOP]*/
-    if (!Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers)) {
+    if (!Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers)
+        && BytecodeGen.isFastClassEnabled()) {
       try {
         // We use an index instead of FastMethod to save a stack frame.
         return new FastClassProviderMethod<T>(
@@ -18,7 +18,11 @@ package com.google.inject.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -83,9 +87,62 @@ public final class ProviderMethodsModule implements Module {
   }
 
   public List<ProviderMethod<?>> getProviderMethods(Binder binder) {
+    ProviderMethodsScan scan = scans.getUnchecked(delegate.getClass());
     List<ProviderMethod<?>> result = Lists.newArrayList();
+    for (Method method : scan.providerMethods) {
+      result.add(createProviderMethod(binder, method));
+    }
+    for (Method[] override : scan.overrides) {
+      binder.addError(
+          "Overriding @Provides methods is not allowed."
+              + "\n\t@Provides method: %s\n\toverridden by: %s",
+          override[0],
+          override[1]);
+    }
+    return result;
+  }
+
+  /**
+   * The provider methods of each module class. They only depend on the class, so modules that are
+   * installed again and again, such as the modules of child injectors, only look for them once.
+   * Classes are weakly referenced, and their provider methods softly referenced since they refer
+   * back to the class.
+   */
+  private static final LoadingCache<Class<?>, ProviderMethodsScan> scans
+      = CacheBuilder.newBuilder().weakKeys().softValues().build(
+          new CacheLoader<Class<?>, ProviderMethodsScan>() {
+            public ProviderMethodsScan load(Class<?> moduleClass) {
+              return new ProviderMethodsScan(moduleClass);
+            }
+          });
+
+  /** The provider methods of a class, and the ones that are overridden. */
+  private static final class ProviderMethodsScan {
+    final ImmutableList<Method> providerMethods;
+    /** Pairs of an overridden provider method and the method that overrides it. */
+    final ImmutableList<Method[]> overrides;
+
+    ProviderMethodsScan(Class<?> moduleClass) {
+      List<Method> providerMethods = Lists.newArrayList();
+      for (Class<?> c = moduleClass; c != Object.class; c = c.getSuperclass()) {
+        for (Method method : c.getDeclaredMethods()) {
+          if (isProvider(method)) {
+            providerMethods.add(method);
+          }
+        }
+      }
+      this.providerMethods = ImmutableList.copyOf(providerMethods);
+      this.overrides = providerMethods.isEmpty()
+          ? ImmutableList.<Method[]>of()
+          : findOverrides(moduleClass, providerMethods);
+    }
+  }
+
+  private static ImmutableList<Method[]> findOverrides(
+      Class<?> moduleClass, List<Method> providerMethods) {
+    TypeLiteral<?> typeLiteral = TypeLiteral.get(moduleClass);
     Multimap<Signature, Method> methodsBySignature = HashMultimap.create();
-    for (Class<?> c = delegate.getClass(); c != Object.class; c = c.getSuperclass()) {
+    for (Class<?> c = moduleClass; c != Object.class; c = c.getSuperclass()) {
       for (Method method : c.getDeclaredMethods()) {
         // private/static methods cannot override or be overridden by other methods, so there is no
         // point in indexing them.
@@ -94,19 +151,16 @@ public final class ProviderMethodsModule implements Module {
         // increasing visibility of a subclass).
         if (((method.getModifiers() & (Modifier.PRIVATE | Modifier.STATIC)) == 0)
             && !method.isBridge() && !method.isSynthetic()) {
-          methodsBySignature.put(new Signature(method), method);
-        }
-        if (isProvider(method)) {
-          result.add(createProviderMethod(binder, method));
+          methodsBySignature.put(new Signature(typeLiteral, method), method);
         }
       }
     }
     // we have found all the providers and now need to identify if any were overridden
     // In the worst case this will have O(n^2) in the number of @Provides methods, but that is only
     // assuming that every method is an override, in general it should be very quick.
-    for (ProviderMethod<?> provider : result) {
-      Method method = provider.getMethod();
-      for (Method matchingSignature : methodsBySignature.get(new Signature(method))) {
+    ImmutableList.Builder<Method[]> overrides = ImmutableList.builder();
+    for (Method method : providerMethods) {
+      for (Method matchingSignature : methodsBySignature.get(new Signature(typeLiteral, method))) {
         // matching signature is in the same class or a super class, therefore method cannot be
         // overridding it.
         if (matchingSignature.getDeclaringClass().isAssignableFrom(method.getDeclaringClass())) {
@@ -114,16 +168,12 @@ public final class ProviderMethodsModule implements Module {
         }
         // now we know matching signature is in a subtype of method.getDeclaringClass()
         if (overrides(matchingSignature, method)) {
-          binder.addError(
-              "Overriding @Provides methods is not allowed."
-                  + "\n\t@Provides method: %s\n\toverridden by: %s",
-              method,
-              matchingSignature);
+          overrides.add(new Method[] { method, matchingSignature });
           break;
         }
       }
     }
-    return result;
+    return overrides.build();
   }
 
   /**
@@ -138,12 +188,12 @@ public final class ProviderMethodsModule implements Module {
         && method.isAnnotationPresent(Provides.class);
   }
 
-  private final class Signature {
+  private static final class Signature {
     final Class<?>[] parameters;
     final String name;
     final int hashCode;
 
-    Signature(Method method) {
+    Signature(TypeLiteral<?> typeLiteral, Method method) {
       this.name = method.getName();
       // We need to 'resolve' the parameters against the actual class type in case this method uses
       // type parameters.  This is so we can detect overrides of generic superclass methods where
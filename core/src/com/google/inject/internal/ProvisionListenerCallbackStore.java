@@ -20,6 +20,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.inject.Binding;
@@ -28,8 +29,10 @@ import com.google.inject.Key;
 import com.google.inject.Stage;
 import com.google.inject.spi.ProvisionListener;
 import com.google.inject.spi.ProvisionListenerBinding;
+import com.google.inject.spi.ProvisionMetrics;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -46,6 +49,7 @@ final class ProvisionListenerCallbackStore {
       ImmutableSet.of(Key.get(Injector.class), Key.get(Stage.class), Key.get(Logger.class));
   
   private final ImmutableList<ProvisionListenerBinding> listenerBindings;
+  private final boolean metricsEnabled = InternalFlags.isProvisionMetricsEnabled();
 
   private final LoadingCache<KeyBinding, ProvisionListenerStackCallback<?>> cache
       = CacheBuilder.newBuilder().build(
@@ -98,6 +102,12 @@ final class ProvisionListenerCallbackStore {
         listeners.addAll(provisionBinding.getListeners());
       }
     }
+    if (metricsEnabled) {
+      // a callback without listeners still takes the fast path
+      return new ProvisionListenerStackCallback<T>(binding,
+          listeners != null ? listeners : ImmutableList.<ProvisionListener>of(),
+          new ProvisionMetricsRecorder());
+    }
     if (listeners == null || listeners.isEmpty()) {
       // Optimization: don't bother constructing the callback if there are
       // no listeners.
@@ -105,6 +115,20 @@ final class ProvisionListenerCallbackStore {
     }
     return new ProvisionListenerStackCallback<T>(binding, listeners);
   }
+
+  /** Returns the metrics of each binding that has been provisioned. */
+  ImmutableMap<Key<?>, ProvisionMetrics> getMetrics() {
+    ImmutableMap.Builder<Key<?>, ProvisionMetrics> result = ImmutableMap.builder();
+    for (Map.Entry<KeyBinding, ProvisionListenerStackCallback<?>> entry
+        : cache.asMap().entrySet()) {
+      ProvisionMetricsRecorder recorder = entry.getValue().getMetrics();
+      ProvisionMetrics metrics = recorder != null ? recorder.snapshot() : null;
+      if (metrics != null) {
+        result.put(entry.getKey().key, metrics);
+      }
+    }
+    return result.build();
+  }
   
   /** A struct that holds key & binding but uses just key for equality/hashcode. */
   private static class KeyBinding {
@@ -40,6 +40,8 @@ final class ProvisionListenerStackCallback<T> {
 
   private final ProvisionListener[] listeners;
   private final Binding<T> binding;
+  /** null unless provisions are being measured. */
+  private final ProvisionMetricsRecorder metrics;
   
   @SuppressWarnings("unchecked")
   public static <T> ProvisionListenerStackCallback<T> emptyListener() {
@@ -47,7 +49,13 @@ final class ProvisionListenerStackCallback<T> {
   }
 
   public ProvisionListenerStackCallback(Binding<T> binding, List<ProvisionListener> listeners) {
+    this(binding, listeners, null);
+  }
+
+  ProvisionListenerStackCallback(Binding<T> binding, List<ProvisionListener> listeners,
+      ProvisionMetricsRecorder metrics) {
     this.binding = binding;
+    this.metrics = metrics;
     if (listeners.isEmpty()) {
       this.listeners = EMPTY_LISTENER;
     } else {
@@ -60,6 +68,11 @@ final class ProvisionListenerStackCallback<T> {
     return listeners.length > 0;
   }
 
+  /** Returns the recorder of this binding's provisions, or null if they aren't measured. */
+  ProvisionMetricsRecorder getMetrics() {
+    return metrics;
+  }
+
   public T provision(Errors errors, InternalContext context, ProvisionCallback<T> callable)
       throws ErrorsException {
     Provision provision = new Provision(errors, context, callable);
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.spi.ProvisionMetrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counts and times the provisions of a binding. Threads record into one of several stripes, chosen
+ * by thread ID, so that threads provisioning the same binding rarely write to the same counters.
+ * Stripes are allocated the first time a thread uses them, so bindings that are rarely provisioned
+ * stay small.
+ */
+final class ProvisionMetricsRecorder {
+
+  private static final int COUNT = 0;
+  private static final int FAILURES = 1;
+  private static final int TOTAL_NANOS = 2;
+  private static final int FIRST_BUCKET = 3;
+  /** Buckets by powers of two, so the last one counts provisions of over four minutes. */
+  private static final int BUCKETS = 40;
+
+  /** A power of two at least the number of processors, up to 64. */
+  private static final int STRIPES = stripes();
+
+  private final AtomicReferenceArray<AtomicLongArray> stripes
+      = new AtomicReferenceArray<AtomicLongArray>(STRIPES);
+
+  void record(long nanos, boolean failed) {
+    AtomicLongArray stripe = stripe();
+    stripe.incrementAndGet(COUNT);
+    if (failed) {
+      stripe.incrementAndGet(FAILURES);
+    }
+    stripe.addAndGet(TOTAL_NANOS, nanos);
+    stripe.incrementAndGet(FIRST_BUCKET + Math.min(64 - Long.numberOfLeadingZeros(nanos),
+        BUCKETS - 1));
+  }
+
+  /** Returns the totals of the stripes, or null if nothing has been recorded. */
+  ProvisionMetrics snapshot() {
+    long[] totals = new long[FIRST_BUCKET + BUCKETS];
+    boolean recorded = false;
+    for (int i = 0; i < STRIPES; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        recorded = true;
+        for (int j = 0; j < totals.length; j++) {
+          totals[j] += stripe.get(j);
+        }
+      }
+    }
+    if (!recorded) {
+      return null;
+    }
+    long[] histogram = new long[BUCKETS];
+    System.arraycopy(totals, FIRST_BUCKET, histogram, 0, BUCKETS);
+    return SpiConstructors.newProvisionMetrics(
+        totals[COUNT], totals[FAILURES], totals[TOTAL_NANOS], histogram);
+  }
+
+  private AtomicLongArray stripe() {
+    int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    AtomicLongArray stripe = stripes.get(index);
+    if (stripe == null) {
+      stripes.compareAndSet(index, null, new AtomicLongArray(FIRST_BUCKET + BUCKETS));
+      stripe = stripes.get(index);
+    }
+    return stripe;
+  }
+
+  private static int stripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Integer.highestOneBit(Math.min(Math.max(processors, 1), 64) * 2 - 1);
+  }
+}
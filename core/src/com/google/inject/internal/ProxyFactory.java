@@ -243,27 +243,63 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
     final Constructor<T> constructor;
     final Callback[] callbacks;
 
+    /** Invokes the enhanced class's constructor, or null to use {@link #enhancedConstructor}. */
     final FastConstructor fastConstructor;
+    final Constructor<?> enhancedConstructor;
     final ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors;
 
     @SuppressWarnings("unchecked") // the constructor promises to construct 'T's
     ProxyConstructor(Enhancer enhancer, InjectionPoint injectionPoint, Callback[] callbacks,
         ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors) {
-      this.enhanced = enhancer.createClass(); // this returns a cached class if possible
+      this.enhanced = createClass(enhancer);
       this.injectionPoint = injectionPoint;
       this.constructor = (Constructor<T>) injectionPoint.getMember();
       this.callbacks = callbacks;
       this.methodInterceptors = methodInterceptors;
 
-      FastClass fastClass = newFastClass(enhanced, BytecodeGen.Visibility.forMember(constructor));
-      this.fastConstructor = fastClass.getConstructor(constructor.getParameterTypes());
+      if (BytecodeGen.isFastClassEnabled()) {
+        FastClass fastClass
+            = newFastClass(enhanced, BytecodeGen.Visibility.forMember(constructor));
+        this.fastConstructor = fastClass.getConstructor(constructor.getParameterTypes());
+        this.enhancedConstructor = null;
+      } else {
+        this.fastConstructor = null;
+        try {
+          this.enhancedConstructor = enhanced.getDeclaredConstructor(
+              constructor.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+          throw new AssertionError(e); // the enhanced class has all of its superclass' constructors
+        }
+        enhancedConstructor.setAccessible(true);
+      }
+    }
+
+    /** Returns the enhanced class, which is cached by cglib if possible. */
+    private static Class<?> createClass(Enhancer enhancer) {
+      InjectorCreationProfiler profiler = InjectorCreationProfiler.current();
+      if (profiler == null) {
+        return enhancer.createClass();
+      }
+      long start = System.nanoTime();
+      try {
+        return enhancer.createClass();
+      } finally {
+        profiler.enhancerCreated(System.nanoTime() - start);
+      }
     }
 
     @SuppressWarnings("unchecked") // the constructor promises to produce 'T's
     public T newInstance(Object... arguments) throws InvocationTargetException {
       Enhancer.registerCallbacks(enhanced, callbacks);
       try {
-        return (T) fastConstructor.newInstance(arguments);
+        if (fastConstructor != null) {
+          return (T) fastConstructor.newInstance(arguments);
+        }
+        return (T) enhancedConstructor.newInstance(arguments);
+      } catch (InstantiationException e) {
+        throw new AssertionError(e); // shouldn't happen, we know this is a concrete type
+      } catch (IllegalAccessException e) {
+        throw new AssertionError(e); // a security manager is blocking us, we're hosed
       } finally {
         Enhancer.registerCallbacks(enhanced, null);
       }
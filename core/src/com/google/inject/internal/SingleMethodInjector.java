@@ -29,7 +29,7 @@ import java.lang.reflect.Modifier;
  */
 final class SingleMethodInjector implements SingleMemberInjector {
   private final MethodInvoker methodInvoker;
-  private final SingleParameterInjector<?>[] parameterInjectors;
+  final SingleParameterInjector<?>[] parameterInjectors;
   private final InjectionPoint injectionPoint;
 
   SingleMethodInjector(InjectorImpl injector, InjectionPoint injectionPoint, Errors errors)
@@ -44,22 +44,23 @@ final class SingleMethodInjector implements SingleMemberInjector {
 
     // We can't use FastMethod if the method is private.
     int modifiers = method.getModifiers();
-    if (!Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers)) {
-      /*if[AOP]*/
+    /*if[AOP]*/
+    if (!Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers)
+        && BytecodeGen.isFastClassEnabled()) {
       try {
-      final net.sf.cglib.reflect.FastMethod fastMethod
-          = BytecodeGen.newFastClass(method.getDeclaringClass(), Visibility.forMember(method))
-              .getMethod(method);
+        final net.sf.cglib.reflect.FastMethod fastMethod
+            = BytecodeGen.newFastClass(method.getDeclaringClass(), Visibility.forMember(method))
+                .getMethod(method);
 
-      return new MethodInvoker() {
-        public Object invoke(Object target, Object... parameters)
-            throws IllegalAccessException, InvocationTargetException {
-          return fastMethod.invoke(target, parameters);
-        }
-      };
+        return new MethodInvoker() {
+          public Object invoke(Object target, Object... parameters)
+              throws IllegalAccessException, InvocationTargetException {
+            return fastMethod.invoke(target, parameters);
+          }
+        };
       } catch (net.sf.cglib.core.CodeGenerationException e) {/* fall-through */}
-      /*end[AOP]*/
     }
+    /*end[AOP]*/
 
     if (!Modifier.isPublic(modifiers) ||
         !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
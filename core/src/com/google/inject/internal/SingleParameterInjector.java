@@ -24,8 +24,8 @@ import com.google.inject.spi.Dependency;
 final class SingleParameterInjector<T> {
   private static final Object[] NO_ARGUMENTS = {}; 
 
-  private final Dependency<T> dependency;
-  private final BindingImpl<? extends T> binding;
+  final Dependency<T> dependency;
+  final BindingImpl<? extends T> binding;
 
   SingleParameterInjector(Dependency<T> dependency, BindingImpl<? extends T> binding) {
     this.dependency = dependency;
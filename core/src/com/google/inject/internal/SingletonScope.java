@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+import com.google.inject.Scope;
+import com.google.inject.Scopes;
+
+import java.util.Map;
+
+/**
+ * One instance per {@link com.google.inject.Injector}. This is the implementation of
+ * {@link Scopes#SINGLETON}.
+ *
+ * <p>Each scoped binding has its own creation lock, so a singleton that is slow to construct only
+ * holds up the threads that need that same singleton. The lock is re-entrant to support circular
+ * dependencies within a thread. If threads would deadlock waiting for each other's singletons, the
+ * thread that closes the cycle fails with a {@link ProvisionException} instead of waiting.
+ */
+public class SingletonScope implements Scope {
+
+  /** A sentinel value representing null. */
+  private static final Object NULL = new Object();
+
+  public <T> Provider<T> scope(final Key<T> key, final Provider<T> creator) {
+    return new Provider<T>() {
+      /*
+       * The lazily initialized singleton instance. Once set, this will either have type T or will
+       * be equal to NULL.
+       */
+      private volatile Object instance;
+
+      private final CycleDetectingLock<Key<T>> creationLock = new CycleDetectingLock<Key<T>>(key);
+
+      // DCL on a volatile is safe as of Java 5, which we obviously require.
+      @SuppressWarnings("DoubleCheckedLocking")
+      public T get() {
+        if (instance == null) {
+          Map<Thread, Object> cycle = creationLock.lockOrDetectCycle();
+          if (!cycle.isEmpty()) {
+            throw new ProvisionException(cycleMessage(key, cycle));
+          }
+          try {
+            if (instance == null) {
+              T provided = creator.get();
+
+              // don't remember proxies; these exist only to serve circular dependencies
+              if (Scopes.isCircularProxy(provided)) {
+                return provided;
+              }
+
+              Object providedOrSentinel = (provided == null) ? NULL : provided;
+              if (instance != null && instance != providedOrSentinel) {
+                throw new ProvisionException(
+                    "Provider was reentrant while creating a singleton");
+              }
+
+              instance = providedOrSentinel;
+            }
+          } finally {
+            creationLock.unlock();
+          }
+        }
+
+        Object localInstance = instance;
+        // This is safe because instance has type T or is equal to NULL
+        @SuppressWarnings("unchecked")
+        T returnedInstance = (localInstance != NULL) ? (T) localInstance : null;
+        return returnedInstance;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("%s[%s]", creator, Scopes.SINGLETON);
+      }
+    };
+  }
+
+  private static String cycleMessage(Key<?> key, Map<Thread, Object> cycle) {
+    StringBuilder message = new StringBuilder()
+        .append("Unable to create the singleton for ").append(key)
+        .append(" because it would deadlock. Each thread is waiting for a singleton that the next")
+        .append(" thread is creating:");
+    for (Map.Entry<Thread, Object> entry : cycle.entrySet()) {
+      message.append("\n  ").append(entry.getKey().getName())
+          .append(" is waiting for ").append(entry.getValue());
+    }
+    return message.toString();
+  }
+
+  @Override public String toString() {
+    return "Scopes.SINGLETON";
+  }
+}
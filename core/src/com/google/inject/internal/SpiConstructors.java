@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Throwables;
+import com.google.inject.Key;
+import com.google.inject.spi.InjectorCreationProfile;
+import com.google.inject.spi.ProvisionMetrics;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+/**
+ * Creates the SPI's values whose constructors are package-private, so that users can only get
+ * them from an injector.
+ */
+final class SpiConstructors {
+
+  private static final Constructor<ProvisionMetrics> PROVISION_METRICS = constructor(
+      ProvisionMetrics.class, long.class, long.class, long.class, long[].class);
+  private static final Constructor<InjectorCreationProfile> INJECTOR_CREATION_PROFILE
+      = constructor(InjectorCreationProfile.class, Map.class, Map.class, Map.class,
+          int.class, long.class, int.class, long.class);
+
+  private SpiConstructors() {}
+
+  /** See {@link ProvisionMetrics}'s constructor. */
+  static ProvisionMetrics newProvisionMetrics(
+      long count, long failureCount, long totalNanos, long[] histogram) {
+    return newInstance(PROVISION_METRICS, count, failureCount, totalNanos, histogram);
+  }
+
+  /** See {@link InjectorCreationProfile}'s constructor. */
+  static InjectorCreationProfile newInjectorCreationProfile(Map<String, Long> phaseNanos,
+      Map<String, Long> moduleNanos, Map<Key<?>, Long> bindingNanos, int fastClassCount,
+      long fastClassNanos, int enhancerCount, long enhancerNanos) {
+    return newInstance(INJECTOR_CREATION_PROFILE, phaseNanos, moduleNanos, bindingNanos,
+        fastClassCount, fastClassNanos, enhancerCount, enhancerNanos);
+  }
+
+  private static <T> Constructor<T> constructor(Class<T> type, Class<?>... parameterTypes) {
+    try {
+      Constructor<T> constructor = type.getDeclaredConstructor(parameterTypes);
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static <T> T newInstance(Constructor<T> constructor, Object... arguments) {
+    try {
+      return constructor.newInstance(arguments);
+    } catch (InvocationTargetException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (InstantiationException e) {
+      throw new AssertionError(e);
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -103,8 +103,9 @@ final class WeakKeySet {
       sources = LinkedHashMultiset.create();
       backingMap.put(blacklistKey, sources);
     }
-    Object convertedSource = Errors.convert(source);
-    sources.add(convertedSource);
+    // The source is converted only if it's reported, which keeps lazily captured element sources
+    // of child injectors from being resolved while they're created.
+    sources.add(source);
 
     // Avoid all the extra work if we can.
     if (state.parent() != State.NONE) {
@@ -112,7 +113,7 @@ final class WeakKeySet {
       if (keyAndSources == null) {
         evictionCache.put(state, keyAndSources = Sets.newHashSet());
       }
-      keyAndSources.add(new KeyAndSource(blacklistKey, convertedSource));
+      keyAndSources.add(new KeyAndSource(blacklistKey, source));
     }
   }
 
@@ -124,7 +125,14 @@ final class WeakKeySet {
   public Set<Object> getSources(Key<?> key) {
     evictionCache.cleanUp();
     Multiset<Object> sources = (backingMap == null) ? null : backingMap.get(new BlacklistKey(key));
-    return (sources == null) ? null : sources.elementSet();
+    if (sources == null) {
+      return null;
+    }
+    Set<Object> convertedSources = Sets.newLinkedHashSet();
+    for (Object source : sources.elementSet()) {
+      convertedSources.add(Errors.convert(source));
+    }
+    return convertedSources;
   }
 
   private static final class KeyAndSource {
@@ -18,11 +18,15 @@ package com.google.inject.internal.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
 
 /**
  * Class utilities.
@@ -57,6 +61,36 @@ public final class Classes {
     }
   }
 
+  /**
+   * Returns the path, modification time and length of the file that {@code type} was loaded from,
+   * which is its class file or the jar that contains it, or null if it wasn't loaded from the file
+   * system. The stamp changes when the class is recompiled or its jar is rebuilt.
+   */
+  public static String getClassFileStamp(Class<?> type) {
+    try {
+      CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+      URL location = codeSource != null ? codeSource.getLocation() : null;
+      if (location == null || !"file".equals(location.getProtocol())) {
+        return null;
+      }
+      File classFile = new File(location.toURI());
+      if (classFile.isDirectory()) {
+        classFile = new File(classFile, type.getName().replace('.', '/') + ".class");
+      }
+      long lastModified = classFile.lastModified();
+      if (lastModified == 0) {
+        return null;
+      }
+      return classFile.getPath() + "@" + lastModified + "," + classFile.length();
+    } catch (SecurityException e) {
+      return null;
+    } catch (URISyntaxException e) {
+      return null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
   /**
    * Returns {@code Field.class}, {@code Method.class} or {@code Constructor.class}.
    */
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal.util;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.inject.internal.InternalFlags;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores the line numbers of classes in a file, so that each class's bytecode is read once rather
+ * than in every run. Each line of the file has a class's name, the stamp of its class file, its
+ * source file, its first line and the line of each member, separated by tabs. Classes are looked
+ * up in the file first, and an entry is appended for each class that isn't there yet or whose
+ * class file has changed since. Entries are only trusted for classes loaded from the file system,
+ * whose class file (or jar) has the same modification time and length as when it was read.
+ *
+ * <p>The file only grows; delete it to drop the entries of classes that changed.
+ */
+final class LineNumberIndex {
+  private static final Logger logger = Logger.getLogger(LineNumberIndex.class.getName());
+  private static final Splitter TAB = Splitter.on('\t');
+
+  private final File file;
+  /** The most recent line of the file for each class name. */
+  private final ConcurrentMap<String, String> entries = Maps.newConcurrentMap();
+  private boolean writable = true;
+
+  LineNumberIndex(File file) {
+    this.file = file;
+    if (file.exists()) {
+      try {
+        for (String line : Files.readLines(file, Charsets.UTF_8)) {
+          int tab = line.indexOf('\t');
+          if (tab > 0) {
+            entries.put(line.substring(0, tab), line);
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Failed to read line number index " + file, e);
+      }
+    }
+  }
+
+  /** Returns the index named by {@code -Dguice_line_number_index}, or null if there isn't one. */
+  static LineNumberIndex fromFlag() {
+    String fileName = InternalFlags.getLineNumberIndexFile();
+    return fileName != null ? new LineNumberIndex(new File(fileName)) : null;
+  }
+
+  /** Returns the line numbers of {@code type}, reading its bytecode if they aren't indexed. */
+  LineNumbers get(Class<?> type) throws IOException {
+    String stamp = Classes.getClassFileStamp(type);
+    if (stamp == null) {
+      return new LineNumbers(type);
+    }
+    String entry = entries.get(type.getName());
+    if (entry != null) {
+      LineNumbers restored = restore(type, stamp, entry);
+      if (restored != null) {
+        return restored;
+      }
+    }
+    LineNumbers lineNumbers = new LineNumbers(type);
+    record(type, stamp, lineNumbers);
+    return lineNumbers;
+  }
+
+  private LineNumbers restore(Class<?> type, String stamp, String entry) {
+    try {
+      Iterator<String> fields = TAB.split(entry).iterator();
+      fields.next(); // the class name
+      if (!stamp.equals(fields.next())) {
+        return null;
+      }
+      String source = fields.next();
+      int firstLine = Integer.parseInt(fields.next());
+      Map<String, Integer> lines = Maps.newHashMap();
+      while (fields.hasNext()) {
+        String member = fields.next();
+        int equals = member.lastIndexOf('=');
+        lines.put(member.substring(0, equals), Integer.parseInt(member.substring(equals + 1)));
+      }
+      return new LineNumbers(type, source.length() == 0 ? null : source, firstLine, lines);
+    } catch (RuntimeException e) {
+      // a truncated or garbled entry; read the bytecode instead
+      return null;
+    }
+  }
+
+  private synchronized void record(Class<?> type, String stamp, LineNumbers lineNumbers) {
+    StringBuilder entry = new StringBuilder()
+        .append(type.getName())
+        .append('\t').append(stamp)
+        .append('\t').append(lineNumbers.getSource() != null ? lineNumbers.getSource() : "")
+        .append('\t').append(lineNumbers.getFirstLine());
+    for (Map.Entry<String, Integer> line : lineNumbers.getLines().entrySet()) {
+      entry.append('\t').append(line.getKey()).append('=').append(line.getValue());
+    }
+    entries.put(type.getName(), entry.toString());
+    if (writable) {
+      try {
+        Files.append(entry.append('\n'), file, Charsets.UTF_8);
+      } catch (IOException e) {
+        writable = false;
+        logger.log(Level.WARNING, "Failed to write line number index " + file, e);
+      }
+    }
+  }
+}
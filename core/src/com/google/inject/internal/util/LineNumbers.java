@@ -35,6 +35,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -67,6 +68,21 @@ final class LineNumbers {
     }
   }
 
+  /**
+   * Restores line number information that was read from the bytecode of {@code type} earlier.
+   */
+  LineNumbers(Class type, String source, int firstLine, Map<String, Integer> lines) {
+    this.type = type;
+    this.source = source;
+    this.firstLine = firstLine;
+    this.lines.putAll(lines);
+  }
+
+  /** Returns the line numbers of members, keyed by their name and descriptor. */
+  Map<String, Integer> getLines() {
+    return Collections.unmodifiableMap(lines);
+  }
+
   /**
    * Get the source file name as read from the bytecode.
    *
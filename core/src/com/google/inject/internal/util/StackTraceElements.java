@@ -38,12 +38,15 @@ public class StackTraceElements {
       new InMemoryStackTraceElement[0];
 
   /*if[AOP]*/
+  /** Line numbers that were read in earlier runs, or null to always read them from bytecode. */
+  private static final LineNumberIndex lineNumberIndex = LineNumberIndex.fromFlag();
+
   static final LoadingCache<Class<?>, LineNumbers> lineNumbersCache =
       CacheBuilder.newBuilder().weakKeys().softValues().build(
           new CacheLoader<Class<?>, LineNumbers>() {
             public LineNumbers load(Class<?> key) {
               try {
-                return new LineNumbers(key);
+                return lineNumberIndex != null ? lineNumberIndex.get(key) : new LineNumbers(key);
               }
               catch (IOException e) {
                 throw new RuntimeException(e);
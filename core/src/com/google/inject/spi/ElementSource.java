@@ -2,6 +2,7 @@ package com.google.inject.spi;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.inject.internal.util.SourceProvider;
 import com.google.inject.internal.util.StackTraceElements;
 import com.google.inject.internal.util.StackTraceElements.InMemoryStackTraceElement;
 
@@ -45,17 +46,29 @@ public final class ElementSource {
   
   /** 
    * The partial call stack that starts at the last module {@link Module#Configure(Binder)
-   * configure(Binder)} call. The value is empty if stack trace collection is off.
+   * configure(Binder)} call. The value is empty if stack trace collection is off. Null until
+   * {@link #capturedStack} has been converted.
    */
-  final InMemoryStackTraceElement[] partialCallStack;
+  private InMemoryStackTraceElement[] partialCallStack;
   
   /** 
    * Refers to a single location in source code that causes the element creation. It can be any 
    * object such as {@link Constructor}, {@link Method}, {@link Field}, {@link StackTraceElement}, 
    * etc. For example, if the element is created from a method annotated by {@literal @Provides}, 
-   * the declaring source of element would be the method itself.
+   * the declaring source of element would be the method itself. Null until {@link #capturedStack}
+   * has been converted.
    */
-  final Object declaringSource;
+  private Object declaringSource;
+
+  /**
+   * The call stack captured when the element was bound, with {@code
+   * -Dguice_lazy_element_sources=true}. The partial call stack and declaring source are found in
+   * it when they're first needed, which is usually never. Null once it has been converted.
+   */
+  private Throwable capturedStack;
+
+  /** Finds the declaring source in {@link #capturedStack}. */
+  private SourceProvider sourceProvider;
 
   /**
    * Creates a new {@ElementSource} from the given parameters. 
@@ -76,6 +89,57 @@ public final class ElementSource {
     this.moduleSource = moduleSource;
     this.partialCallStack = StackTraceElements.convertToInMemoryStackTraceElement(partialCallStack);
   }
+
+  /**
+   * Creates a new {@ElementSource} whose call stack is converted when it's first needed.
+   * @param originalElementSource The source of element that this element created from (if there is
+   * any), otherwise {@code null}.
+   * @param declaringSource the source (in)directly declared the element, or null to find it in
+   * {@code capturedStack} with {@code sourceProvider}
+   * @param moduleSource the moduleSource when the element is bound
+   * @param capturedStack a throwable created by the method that the {@link Binder} method called
+   * @param sourceProvider finds the declaring source in {@code capturedStack}, or null if the
+   * declaring source is given
+   * @param includePartialCallStack true if the partial call stack should be kept
+   */
+  ElementSource(/* @Nullable */ ElementSource originalSource,
+      /* @Nullable */ Object declaringSource, ModuleSource moduleSource, Throwable capturedStack,
+      SourceProvider sourceProvider, boolean includePartialCallStack) {
+    Preconditions.checkNotNull(moduleSource, "moduleSource cannot be null.");
+    Preconditions.checkNotNull(capturedStack, "capturedStack cannot be null.");
+    Preconditions.checkArgument(declaringSource != null || sourceProvider != null,
+        "declaringSource and sourceProvider cannot both be null.");
+    this.originalElementSource = originalSource;
+    this.declaringSource = declaringSource;
+    this.moduleSource = moduleSource;
+    this.capturedStack = capturedStack;
+    this.sourceProvider = sourceProvider;
+    if (!includePartialCallStack) {
+      this.partialCallStack =
+          StackTraceElements.convertToInMemoryStackTraceElement(new StackTraceElement[0]);
+    }
+  }
+
+  private InMemoryStackTraceElement[] partialCallStack() {
+    convertCapturedStack();
+    return partialCallStack;
+  }
+
+  /** Finds the declaring source and partial call stack in the captured stack, if there is one. */
+  private synchronized void convertCapturedStack() {
+    if (capturedStack != null) {
+      StackTraceElement[] callStack = capturedStack.getStackTrace();
+      if (declaringSource == null) {
+        declaringSource = sourceProvider.get(callStack);
+      }
+      if (partialCallStack == null) {
+        partialCallStack = StackTraceElements.convertToInMemoryStackTraceElement(
+            ModuleSource.trimCallStack(callStack, moduleSource));
+      }
+      capturedStack = null;
+      sourceProvider = null;
+    }
+  }
   
   /**
    * Returns the {@link ElementSource} of the element this was created or copied from. If this was
@@ -92,6 +156,7 @@ public final class ElementSource {
    * declaring source of element would be the method itself.
    */
   public Object getDeclaringSource() {
+    convertCapturedStack();
     return declaringSource;
   }
   
@@ -125,7 +190,7 @@ public final class ElementSource {
   public List<Integer> getModuleConfigurePositionsInStackTrace() {
     int size = moduleSource.size();
     Integer[] positions = new Integer[size];
-    int chunkSize = partialCallStack.length;
+    int chunkSize = partialCallStack().length;
     positions[0] = chunkSize - 1;
     ModuleSource current = moduleSource;
     for (int cursor = 1; cursor < size; cursor++) {
@@ -146,11 +211,11 @@ public final class ElementSource {
    */
   public StackTraceElement[] getStackTrace() {
     int modulesCallStackSize = moduleSource.getStackTraceSize();
-    int chunkSize = partialCallStack.length;
+    int chunkSize = partialCallStack().length;
     int size = moduleSource.getStackTraceSize() + chunkSize;
     StackTraceElement[] callStack = new StackTraceElement[size];
     System.arraycopy(
-        StackTraceElements.convertToStackTraceElement(partialCallStack), 0, callStack, 0, 
+        StackTraceElements.convertToStackTraceElement(partialCallStack()), 0, callStack, 0, 
         chunkSize);
     System.arraycopy(moduleSource.getStackTrace(), 0, callStack, chunkSize, modulesCallStackSize);
     return callStack;
@@ -19,6 +19,7 @@ package com.google.inject.spi;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.inject.internal.InternalFlags.IncludeStackTraceOption;
 import static com.google.inject.internal.InternalFlags.getIncludeStackTraceOption;
+import static com.google.inject.internal.InternalFlags.isLazyElementSourcesEnabled;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -44,6 +45,7 @@ import com.google.inject.internal.BindingBuilder;
 import com.google.inject.internal.ConstantBindingBuilderImpl;
 import com.google.inject.internal.Errors;
 import com.google.inject.internal.ExposureBuilder;
+import com.google.inject.internal.InjectorCreationProfiler;
 import com.google.inject.internal.PrivateElementsImpl;
 import com.google.inject.internal.ProviderMethodsModule;
 import com.google.inject.internal.RehashableKeys;
@@ -255,6 +257,11 @@ public final class Elements {
         if (module instanceof PrivateModule) {
           binder = binder.newPrivateBinder();
         }      
+        InjectorCreationProfiler profiler = module instanceof ProviderMethodsModule
+            ? null : InjectorCreationProfiler.current();
+        if (profiler != null) {
+          profiler.beginModule();
+        }
         try {
           module.configure(binder);
         } catch (RuntimeException e) {
@@ -266,6 +273,9 @@ public final class Elements {
           }
         }
         binder.install(ProviderMethodsModule.forModule(module));
+        if (profiler != null) {
+          profiler.endModule(module);
+        }
         // We are done with this module, so undo module source change
         if (!(module instanceof ProviderMethodsModule)) {
           moduleSource = moduleSource.getParent();
@@ -392,6 +402,9 @@ public final class Elements {
     private ModuleSource getModuleSource(Module module) {
       StackTraceElement[] partialCallStack;
       if (getIncludeStackTraceOption() == IncludeStackTraceOption.COMPLETE) {
+        if (isLazyElementSourcesEnabled()) {
+          return new ModuleSource(moduleSource, module, new Throwable());
+        }
         partialCallStack = getPartialCallStack(new Throwable().getStackTrace());
       } else {
         partialCallStack = new StackTraceElement[0];
@@ -416,6 +429,14 @@ public final class Elements {
         declaringSource = originalSource.getDeclaringSource();
       }
       IncludeStackTraceOption stackTraceOption = getIncludeStackTraceOption();
+      if (isLazyElementSourcesEnabled() && (stackTraceOption == IncludeStackTraceOption.COMPLETE
+          || (stackTraceOption == IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE
+              && declaringSource == null))) {
+        // Let the element source find the declaring source and partial call stack when it needs
+        // them, which is usually only when reporting an error.
+        return new ElementSource(originalSource, declaringSource, moduleSource, new Throwable(),
+            sourceProvider, stackTraceOption == IncludeStackTraceOption.COMPLETE);
+      }
       if (stackTraceOption == IncludeStackTraceOption.COMPLETE ||
           (stackTraceOption == IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE 
           && declaringSource == null)) {
@@ -446,16 +467,8 @@ public final class Elements {
      * in the call stack.  
      */
     private StackTraceElement[] getPartialCallStack(StackTraceElement[] callStack) {
-      int toSkip = 0;
-      if (moduleSource != null) {
-        toSkip = moduleSource.getStackTraceSize();
-      }
-      // -1 for skipping 'getModuleSource' and 'getElementSource' calls
-      int chunkSize = callStack.length - toSkip - 1;
-
-      StackTraceElement[] partialCallStack = new StackTraceElement[chunkSize];
-      System.arraycopy(callStack, 1, partialCallStack, 0, chunkSize);
-      return partialCallStack;
+      // skips the 'getModuleSource' or 'getElementSource' call
+      return ModuleSource.trimCallStack(callStack, moduleSource);
     }
     
     @Override public void rehashKeys() {
@@ -228,6 +228,33 @@ public final class InjectionPoint {
     return new InjectionPoint(type, constructor);
   }
 
+  /**
+   * Returns a new injection point for the specified field or method of {@code type}, for the
+   * injector image, which calls this reflectively through {@code MemberInjectionPoints}. The
+   * injection point is optional if the member is annotated with {@code @Inject(optional = true)}.
+   *
+   * @param member a field or method annotated {@literal @}{@link Inject} that's declared by {@code
+   *     type} or one of its superclasses.
+   * @param type the concrete type whose instances are injected.
+   * @throws ConfigurationException if the member is malformed, such as a parameter with multiple
+   *     binding annotations.
+   */
+  static InjectionPoint forMember(Member member, TypeLiteral<?> type) {
+    Annotation atInject = getAtInject((AnnotatedElement) member);
+    if (atInject == null) {
+      throw new IllegalArgumentException(member + " is not annotated with @Inject");
+    }
+    boolean optional = atInject instanceof Inject && ((Inject) atInject).optional();
+    TypeLiteral<?> declaringType = type.getSupertype(member.getDeclaringClass());
+    if (member instanceof Field) {
+      return new InjectionPoint(declaringType, (Field) member, optional);
+    } else if (member instanceof Method) {
+      return new InjectionPoint(declaringType, (Method) member, optional);
+    } else {
+      throw new IllegalArgumentException(member + " is not a field or method");
+    }
+  }
+
   /**
    * Returns a new injection point for the injectable constructor of {@code type}.
    *
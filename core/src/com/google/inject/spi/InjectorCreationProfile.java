@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.internal.InternalInjectorCreator;
+
+import java.util.Map;
+
+/**
+ * How long each part of creating an injector took. Injectors record their profile when they're
+ * created with {@code -Dguice_profile_injector_creation=true}; get it with {@link #of}.
+ *
+ * <p>All times are in nanoseconds, measured on the thread that created the injector. Work done on
+ * other threads, such as loading eager singletons with {@code -Dguice_eager_singleton_threads},
+ * is only included in the time of the phase that waited for it.
+ *
+ * @since 4.0
+ */
+public final class InjectorCreationProfile {
+  private final ImmutableMap<String, Long> phaseNanos;
+  private final ImmutableMap<String, Long> moduleNanos;
+  private final ImmutableMap<Key<?>, Long> bindingNanos;
+  private final int fastClassCount;
+  private final long fastClassNanos;
+  private final int enhancerCount;
+  private final long enhancerNanos;
+
+  InjectorCreationProfile(Map<String, Long> phaseNanos, Map<String, Long> moduleNanos,
+      Map<Key<?>, Long> bindingNanos, int fastClassCount, long fastClassNanos,
+      int enhancerCount, long enhancerNanos) {
+    this.phaseNanos = ImmutableMap.copyOf(phaseNanos);
+    this.moduleNanos = ImmutableMap.copyOf(moduleNanos);
+    this.bindingNanos = ImmutableMap.copyOf(bindingNanos);
+    this.fastClassCount = fastClassCount;
+    this.fastClassNanos = fastClassNanos;
+    this.enhancerCount = enhancerCount;
+    this.enhancerNanos = enhancerNanos;
+  }
+
+  /**
+   * Returns the profile of {@code injector}'s creation, or null if it wasn't recorded. Injectors
+   * that were created with profiling disabled, and the injectors of private environments, have no
+   * profile.
+   */
+  public static InjectorCreationProfile of(Injector injector) {
+    return InternalInjectorCreator.getCreationProfile(injector);
+  }
+
+  /**
+   * Returns the time of each phase of creation, in the order they ran. The phases of private
+   * environments are added to the phases of the same name.
+   */
+  public Map<String, Long> getPhaseNanos() {
+    return phaseNanos;
+  }
+
+  /** Returns the total time of the phases. */
+  public long getTotalNanos() {
+    long total = 0;
+    for (long nanos : phaseNanos.values()) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the time spent configuring each module, by the name of its class. A module's time
+   * excludes the modules it installs, and includes the time of its {@code @Provides} methods'
+   * bindings. Modules of the same class are added together.
+   */
+  public Map<String, Long> getModuleConfigureNanos() {
+    return moduleNanos;
+  }
+
+  /**
+   * Returns the time spent initializing each binding, such as finding its injection points and
+   * creating its constructor, including the just-in-time bindings that it creates. Keys bound in
+   * several private environments are added together.
+   */
+  public Map<Key<?>, Long> getBindingInitializationNanos() {
+    return bindingNanos;
+  }
+
+  /** Returns the number of FastClasses that were generated or found in cglib's cache. */
+  public int getFastClassCount() {
+    return fastClassCount;
+  }
+
+  /** Returns the time spent getting FastClasses. */
+  public long getFastClassNanos() {
+    return fastClassNanos;
+  }
+
+  /**
+   * Returns the number of enhanced classes, for method interception, that were generated or found
+   * in cglib's cache.
+   */
+  public int getEnhancerCount() {
+    return enhancerCount;
+  }
+
+  /** Returns the time spent getting enhanced classes. */
+  public long getEnhancerNanos() {
+    return enhancerNanos;
+  }
+
+  @Override public String toString() {
+    return Objects.toStringHelper(InjectorCreationProfile.class)
+        .add("totalNanos", getTotalNanos())
+        .add("phaseNanos", phaseNanos)
+        .add("fastClassCount", fastClassCount)
+        .add("fastClassNanos", fastClassNanos)
+        .add("enhancerCount", enhancerCount)
+        .add("enhancerNanos", enhancerNanos)
+        .toString();
+  }
+}
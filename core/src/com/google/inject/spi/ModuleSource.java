@@ -29,9 +29,18 @@ final class ModuleSource {
    * The chunk of call stack that starts from the parent module {@link Module#configure(Binder) 
    * configure(Binder)} call and ends just before the module {@link Module#configure(Binder) 
    * configure(Binder)} method invocation. For a module without a parent module the chunk starts 
-   * from the bottom of call stack. The array is non-empty if stack trace collection is on.
+   * from the bottom of call stack. The array is non-empty if stack trace collection is on. Null
+   * until {@link #capturedStack} has been converted.
    */
-  private final InMemoryStackTraceElement[] partialCallStack;
+  private InMemoryStackTraceElement[] partialCallStack;
+
+  /**
+   * The call stack captured when the module was installed, with {@code
+   * -Dguice_lazy_element_sources=true}. Converting it to {@link StackTraceElement
+   * StackTraceElements} is most of the cost of collecting the stack, so it's not done until the
+   * stack is needed. Null once it has been converted.
+   */
+  private Throwable capturedStack;
 
   /**
    * Creates a new {@link ModuleSource} with a {@literal null} parent.
@@ -60,6 +69,22 @@ final class ModuleSource {
     this.moduleClassName = module.getClass().getName();
     this.partialCallStack = StackTraceElements.convertToInMemoryStackTraceElement(partialCallStack);
   }
+
+  /**
+   * Creates a new {@link ModuleSource} whose partial call stack is found in {@code capturedStack}
+   * when it's first needed.
+   * @param parent the parent module {@link ModuleSource source}
+   * @param module the corresponding module
+   * @param capturedStack a throwable created by the method that {@link Binder#install installs}
+   * the module
+   */
+  ModuleSource(/* @Nullable */ ModuleSource parent, Module module, Throwable capturedStack) {
+    Preconditions.checkNotNull(module, "module cannot be null.");
+    Preconditions.checkNotNull(capturedStack, "capturedStack cannot be null.");
+    this.parent = parent;
+    this.moduleClassName = module.getClass().getName();
+    this.capturedStack = capturedStack;
+  }
   
   /** 
    * Returns the corresponding module class name.
@@ -77,16 +102,45 @@ final class ModuleSource {
    * only if stack trace collection is on.
    */
   StackTraceElement[] getPartialCallStack() {
-    return StackTraceElements.convertToStackTraceElement(partialCallStack);
+    return StackTraceElements.convertToStackTraceElement(partialCallStack());
   }
   
   /**
    * Returns the size of partial call stack if stack trace collection is on otherwise zero.
    */
   int getPartialCallStackSize() {
-    return partialCallStack.length;
+    return partialCallStack().length;
   }
   
+  /** Returns the partial call stack, converting the captured stack the first time. */
+  private synchronized InMemoryStackTraceElement[] partialCallStack() {
+    if (capturedStack != null) {
+      partialCallStack = StackTraceElements.convertToInMemoryStackTraceElement(
+          trimCallStack(capturedStack.getStackTrace(), parent));
+      capturedStack = null;
+    }
+    return partialCallStack;
+  }
+
+  /**
+   * Returns the chunk of {@code callStack} that starts after the method that captured it and ends
+   * just before the {@link Module#configure(Binder) configure(Binder)} call of {@code enclosing}.
+   * @param enclosing the module being configured when the stack was captured, or null for none
+   */
+  static StackTraceElement[] trimCallStack(
+      StackTraceElement[] callStack, /* @Nullable */ ModuleSource enclosing) {
+    int toSkip = 0;
+    if (enclosing != null) {
+      toSkip = enclosing.getStackTraceSize();
+    }
+    // -1 for skipping the method that captured the stack
+    int chunkSize = callStack.length - toSkip - 1;
+
+    StackTraceElement[] partialCallStack = new StackTraceElement[chunkSize];
+    System.arraycopy(callStack, 1, partialCallStack, 0, chunkSize);
+    return partialCallStack;
+  }
+
   /** 
    * Creates and returns a child {@link ModuleSource} corresponding to the {@link Module module}.
    * @param module the corresponding module
@@ -138,9 +192,9 @@ final class ModuleSource {
    */
   int getStackTraceSize() {
     if (parent == null) {
-      return partialCallStack.length;
+      return partialCallStack().length;
     }
-    return parent.getStackTraceSize() + partialCallStack.length;
+    return parent.getStackTraceSize() + partialCallStack().length;
   }
 
   /**
@@ -155,7 +209,7 @@ final class ModuleSource {
     ModuleSource current = this;
     while (current != null) {
       StackTraceElement[] chunk = 
-          StackTraceElements.convertToStackTraceElement(current.partialCallStack);
+          StackTraceElements.convertToStackTraceElement(current.partialCallStack());
       int chunkSize = chunk.length;
       System.arraycopy(chunk, 0, callStack, cursor, chunkSize);
       current = current.parent;
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Objects;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.internal.InternalInjectorCreator;
+
+import java.util.Map;
+
+/**
+ * A snapshot of how often a binding was provisioned and how long that took. Injectors record
+ * metrics for the bindings they provision when they're created with {@code
+ * -Dguice_provision_metrics=true}; get them with {@link #snapshot}.
+ *
+ * <p>A provision is one call of a constructor or provider, including injecting the instance's
+ * members and provisioning its dependencies. Instances that are returned from a scope aren't
+ * provisioned again, and instance bindings aren't provisioned at all.
+ *
+ * @since 4.0
+ */
+public final class ProvisionMetrics {
+  private final long count;
+  private final long failureCount;
+  private final long totalNanos;
+  private final long[] histogram;
+
+  /**
+   * @param histogram the number of provisions by their time in nanoseconds: element {@code i}
+   *     counts the provisions that took less than 2<sup>i</sup> and at least 2<sup>i-1</sup>
+   *     nanoseconds. The last element also counts the slower provisions.
+   */
+  ProvisionMetrics(long count, long failureCount, long totalNanos, long[] histogram) {
+    this.count = count;
+    this.failureCount = failureCount;
+    this.totalNanos = totalNanos;
+    this.histogram = histogram.clone();
+  }
+
+  /**
+   * Returns the metrics of each binding that {@code injector} has provisioned, or an empty map if
+   * it isn't recording metrics. Bindings that haven't been provisioned yet may be missing. The
+   * snapshot isn't atomic: provisions that are in progress on other threads may be partially
+   * counted.
+   */
+  public static Map<Key<?>, ProvisionMetrics> snapshot(Injector injector) {
+    return InternalInjectorCreator.getProvisionMetrics(injector);
+  }
+
+  /** Returns the number of provisions, including the ones that failed. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the number of provisions that threw. */
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  /** Returns the total time of the provisions. */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /** Returns the mean time of a provision, or 0 if there weren't any. */
+  public long getMeanNanos() {
+    return count == 0 ? 0 : totalNanos / count;
+  }
+
+  /**
+   * Returns an upper bound of the time that {@code percentile} percent of provisions took, or 0 if
+   * there weren't any. The bound is at most twice the actual time.
+   */
+  public long getPercentileNanos(double percentile) {
+    checkArgument(percentile >= 0 && percentile <= 100, "percentile must be in [0, 100]");
+    long total = 0;
+    for (long bucketCount : histogram) {
+      total += bucketCount;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < histogram.length; i++) {
+      seen += histogram[i];
+      if (seen >= rank && seen > 0) {
+        return i == histogram.length - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+      }
+    }
+    return 0;
+  }
+
+  @Override public String toString() {
+    return Objects.toStringHelper(ProvisionMetrics.class)
+        .add("count", count)
+        .add("failureCount", failureCount)
+        .add("meanNanos", getMeanNanos())
+        .add("p50Nanos", getPercentileNanos(50))
+        .add("p99Nanos", getPercentileNanos(99))
+        .toString();
+  }
+}
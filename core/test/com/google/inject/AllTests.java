@@ -17,6 +17,10 @@
 package com.google.inject;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.inject.internal.EagerSingletonLoaderTest;
+import com.google.inject.internal.InjectionPointScannerTest;
+import com.google.inject.internal.InjectorImageTest;
+import com.google.inject.internal.InternalContextTest;
 import com.google.inject.internal.MoreTypesTest;
 import com.google.inject.internal.RehashableKeysTest;
 import com.google.inject.internal.UniqueAnnotationsTest;
@@ -31,10 +35,12 @@ import com.google.inject.spi.ElementSourceTest;
 import com.google.inject.spi.ElementsTest;
 import com.google.inject.spi.HasDependenciesTest;
 import com.google.inject.spi.InjectionPointTest;
+import com.google.inject.spi.InjectorCreationProfileTest;
 import com.google.inject.spi.InjectorSpiTest;
 import com.google.inject.spi.ModuleRewriterTest;
 import com.google.inject.spi.ModuleSourceTest;
 import com.google.inject.spi.ProviderMethodsTest;
+import com.google.inject.spi.ProvisionMetricsTest;
 import com.google.inject.spi.SpiBindingsTest;
 import com.google.inject.spi.ToolStageInjectorTest;
 import com.google.inject.util.NoopOverrideTest;
@@ -110,6 +116,10 @@ public class AllTests {
     suite.addTestSuite(WeakKeySetTest.class);
 
     // internal
+    suite.addTestSuite(EagerSingletonLoaderTest.class);
+    suite.addTestSuite(InjectionPointScannerTest.class);
+    suite.addTestSuite(InjectorImageTest.class);
+    suite.addTestSuite(InternalContextTest.class);
     suite.addTestSuite(LineNumbersTest.class);
     suite.addTestSuite(MoreTypesTest.class);
     suite.addTestSuite(UniqueAnnotationsTest.class);
@@ -127,9 +137,11 @@ public class AllTests {
     suite.addTestSuite(ElementApplyToTest.class);
     suite.addTestSuite(HasDependenciesTest.class);
     suite.addTestSuite(InjectionPointTest.class);
+    suite.addTestSuite(InjectorCreationProfileTest.class);
     suite.addTestSuite(InjectorSpiTest.class);
     suite.addTestSuite(ModuleRewriterTest.class);
     suite.addTestSuite(ProviderMethodsTest.class);
+    suite.addTestSuite(ProvisionMetricsTest.class);
     suite.addTestSuite(SpiBindingsTest.class);
     suite.addTestSuite(ToolStageInjectorTest.class);
     suite.addTestSuite(ModuleSourceTest.class);
@@ -144,7 +156,10 @@ public class AllTests {
     suite.addTestSuite(TypesTest.class);
 
     /*if[AOP]*/
+    suite.addTestSuite(com.google.inject.internal.InjectionPlanTest.class);
     suite.addTestSuite(com.google.inject.internal.ProxyFactoryTest.class);
+    suite.addTestSuite(com.google.inject.internal.ReflectionInvocationTest.class);
+    suite.addTestSuite(com.google.inject.internal.util.LineNumberIndexTest.class);
     suite.addTestSuite(IntegrationTest.class);
     suite.addTestSuite(MethodInterceptionTest.class);
     suite.addTestSuite(com.googlecode.guice.BytecodeGenTest.class);
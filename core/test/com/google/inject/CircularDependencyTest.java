@@ -103,6 +103,26 @@ public class CircularDependencyTest extends TestCase {
     assertCircularDependencies(injector);
   }
   
+  public void testCircularlyDependentConstructorsInChildInjector()
+      throws CreationException {
+    // The child's constructors share the context of the parent, which has constructors of its own.
+    Injector parent = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        bind(F.class).to(RealF.class);
+        bind(G.class).to(RealG.class);
+      }
+    });
+    Injector child = parent.createChildInjector(new AbstractModule() {
+      protected void configure() {
+        bind(A.class).to(AImpl.class);
+        bind(B.class).to(BImpl.class);
+      }
+    });
+    assertCircularDependencies(child);
+    F f = parent.getInstance(F.class);
+    assertEquals("F", f.g().f().toString());
+  }
+
   private void assertCircularDependencies(Injector injector) {
     A a = injector.getInstance(A.class);
     assertNotNull(a.getB().getA());
@@ -17,13 +17,23 @@
 package com.google.inject;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.matcher.Matchers;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.google.inject.spi.Message;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
 
 import junit.framework.TestCase;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author crazybob@google.com (Bob Lee)
@@ -343,5 +353,47 @@ public class ImplicitBindingTest extends TestCase {
   
   // Valid JITable binding
   static class E { }
-  
+
+  public void testExistingJitBindingsDontWaitForNewOnes() throws Exception {
+    final CountDownLatch hearing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bindListener(Matchers.only(TypeLiteral.get(Slow.class)), new TypeListener() {
+          public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+            hearing.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+          }
+        });
+      }
+    });
+    injector.getInstance(E.class);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // Creating the binding for Slow holds the injector's lock until it's released.
+      Future<Slow> slow = executor.submit(new Callable<Slow>() {
+        public Slow call() {
+          return injector.getInstance(Slow.class);
+        }
+      });
+      assertTrue(hearing.await(10, TimeUnit.SECONDS));
+
+      Future<E> e = executor.submit(new Callable<E>() {
+        public E call() {
+          assertNotNull(injector.getExistingBinding(Key.get(E.class)));
+          return injector.getInstance(E.class);
+        }
+      });
+      assertNotNull(e.get(10, TimeUnit.SECONDS));
+
+      release.countDown();
+      assertNotNull(slow.get(10, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  static class Slow { }
 }
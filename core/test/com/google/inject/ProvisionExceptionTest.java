@@ -271,8 +271,43 @@ public class ProvisionExceptionTest extends TestCase {
     }
   }
 
+  public void testFailuresDontAffectLaterProvisions() {
+    Injector injector = Guice.createInjector();
+    for (int i = 0; i < 2; i++) {
+      try {
+        injector.getInstance(RealD.class);
+        fail();
+      } catch (ProvisionException expected) {
+        assertEquals(1, expected.getErrorMessages().size());
+        assertContains(expected.getMessage(),
+            "while locating " + RealD.class.getName());
+      }
+      assertNotNull(injector.getInstance(CatchesFailure.class).caught);
+    }
+  }
+
+  public void testCaughtFailureWithinProvisionDoesntFailOuterProvision() {
+    Injector injector = Guice.createInjector();
+    CatchesFailure catchesFailure = injector.getInstance(CatchesFailure.class);
+    assertNotNull(catchesFailure.caught);
+    assertContains(catchesFailure.caught.getMessage(),
+        "while locating " + RealD.class.getName());
+  }
+
   private class InnerClass {}
 
+  static class CatchesFailure {
+    ProvisionException caught;
+
+    @Inject CatchesFailure(Provider<RealD> provider) {
+      try {
+        provider.get();
+      } catch (ProvisionException expected) {
+        caught = expected;
+      }
+    }
+  }
+
   static class A {
     @Inject
     A(B b) { }
@@ -24,6 +24,7 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.name.Named;
 import com.google.inject.spi.Element;
 import com.google.inject.spi.Elements;
@@ -41,6 +42,12 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author crazybob@google.com (Bob Lee)
@@ -754,4 +761,95 @@ public class ScopesTest extends TestCase {
     injector.getInstance(ThrowingSingleton.class);
     assertEquals(2, ThrowingSingleton.nextInstanceId);
   }
+
+  @Singleton
+  static class SlowSingleton {
+    static CountDownLatch constructing;
+    static CountDownLatch finish;
+
+    @Inject SlowSingleton() {
+      constructing.countDown();
+      Uninterruptibles.awaitUninterruptibly(finish);
+    }
+  }
+
+  public void testSlowSingletonDoesNotBlockOtherSingletons() throws Exception {
+    SlowSingleton.constructing = new CountDownLatch(1);
+    SlowSingleton.finish = new CountDownLatch(1);
+    final Injector injector = Guice.createInjector();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<SlowSingleton> slow = executor.submit(new Callable<SlowSingleton>() {
+        public SlowSingleton call() {
+          return injector.getInstance(SlowSingleton.class);
+        }
+      });
+      assertTrue(SlowSingleton.constructing.await(10, TimeUnit.SECONDS));
+
+      Future<AnnotatedSingleton> other = executor.submit(new Callable<AnnotatedSingleton>() {
+        public AnnotatedSingleton call() {
+          return injector.getInstance(AnnotatedSingleton.class);
+        }
+      });
+      assertSame(injector.getInstance(AnnotatedSingleton.class), other.get(10, TimeUnit.SECONDS));
+
+      SlowSingleton.finish.countDown();
+      assertSame(injector.getInstance(SlowSingleton.class), slow.get(10, TimeUnit.SECONDS));
+    } finally {
+      SlowSingleton.finish.countDown();
+      executor.shutdown();
+    }
+  }
+
+  static final CountDownLatch bothConstructing = new CountDownLatch(2);
+
+  @Singleton
+  static class Hen {
+    @Inject Hen(Provider<Rooster> rooster) {
+      bothConstructing.countDown();
+      Uninterruptibles.awaitUninterruptibly(bothConstructing);
+      rooster.get();
+    }
+  }
+
+  @Singleton
+  static class Rooster {
+    @Inject Rooster(Provider<Hen> hen) {
+      bothConstructing.countDown();
+      Uninterruptibles.awaitUninterruptibly(bothConstructing);
+      hen.get();
+    }
+  }
+
+  public void testSingletonCycleAcrossThreadsFailsInsteadOfDeadlocking() throws Exception {
+    final Injector injector = Guice.createInjector();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> hen = executor.submit(getInstanceOrFailure(injector, Hen.class));
+      Future<String> rooster = executor.submit(getInstanceOrFailure(injector, Rooster.class));
+      String failures = hen.get(10, TimeUnit.SECONDS) + rooster.get(10, TimeUnit.SECONDS);
+      assertContains(failures,
+          "because it would deadlock. Each thread is waiting for a singleton that the next thread"
+              + " is creating:");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /** Returns the message of the ProvisionException thrown by getInstance, or "". */
+  private static Callable<String> getInstanceOrFailure(
+      final Injector injector, final Class<?> type) {
+    return new Callable<String>() {
+      public String call() {
+        try {
+          injector.getInstance(type);
+          return "";
+        } catch (ProvisionException e) {
+          return e.getMessage();
+        }
+      }
+    };
+  }
 }
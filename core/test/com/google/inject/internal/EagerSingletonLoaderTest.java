@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import static com.google.inject.Asserts.assertContains;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.PrivateModule;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests loading eager singletons with {@code -Dguice_eager_singleton_threads}.
+ */
+public class EagerSingletonLoaderTest extends TestCase {
+
+  private static final String FLAG = "guice_eager_singleton_threads";
+
+  static final List<Class<?>> loaded = new CopyOnWriteArrayList<Class<?>>();
+  static CyclicBarrier barrier;
+
+  @Override protected void setUp() throws Exception {
+    System.setProperty(FLAG, "3");
+    loaded.clear();
+  }
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+    barrier = null;
+  }
+
+  public void testIndependentSingletonsAreLoadedConcurrently() {
+    barrier = new CyclicBarrier(3);
+    Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(AwaitsOthers1.class).asEagerSingleton();
+        bind(AwaitsOthers2.class).asEagerSingleton();
+        bind(AwaitsOthers3.class).asEagerSingleton();
+      }
+    });
+    assertEquals(3, loaded.size());
+  }
+
+  public void testSingletonsAreLoadedAfterTheirDependencies() {
+    Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
+      @Override protected void configure() {
+        bind(DependsOnProvider.class);
+        bind(Object.class).to(Dependency.class);
+      }
+    });
+    assertEquals(ImmutableList.of(Dependency.class, DependsOnProvider.class), loaded);
+  }
+
+  public void testSingletonsInPrivateEnvironments() {
+    Injector injector = Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
+      @Override protected void configure() {
+        bind(DependsOnProvider.class);
+        install(new PrivateModule() {
+          @Override protected void configure() {
+            bind(Dependency.class);
+            expose(Dependency.class);
+          }
+        });
+      }
+    });
+    assertEquals(ImmutableList.of(Dependency.class, DependsOnProvider.class), loaded);
+    assertSame(injector.getInstance(DependsOnProvider.class).dependency.get(),
+        injector.getInstance(Dependency.class));
+  }
+
+  public void testCircularDependencies() {
+    Injector injector = Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
+      @Override protected void configure() {
+        bind(Chicken.class).to(ChickenImpl.class);
+        bind(Egg.class).to(EggImpl.class);
+      }
+    });
+    Chicken chicken = injector.getInstance(Chicken.class);
+    assertSame(chicken.egg(), chicken.egg().chicken().egg());
+  }
+
+  public void testFailuresMatchSerialLoading() {
+    String parallel = creationFailure();
+    System.clearProperty(FLAG);
+    String serial = creationFailure();
+    assertEquals(serial, parallel);
+    assertContains(parallel,
+        "1) Error injecting constructor, java.lang.IllegalStateException: " + Failing1.class,
+        "2) Error injecting constructor, java.lang.IllegalStateException: " + Failing2.class,
+        "2 errors");
+  }
+
+  private String creationFailure() {
+    Module module = new AbstractModule() {
+      @Override protected void configure() {
+        bind(Failing1.class).asEagerSingleton();
+        bind(Dependency.class).asEagerSingleton();
+        bind(Failing2.class).asEagerSingleton();
+      }
+    };
+    try {
+      Guice.createInjector(module);
+      fail();
+      return null;
+    } catch (CreationException expected) {
+      // the causes' stack traces differ by thread
+      return expected.getMessage().replaceAll("\n\tat .*", "");
+    }
+  }
+
+  static void awaitOthers() {
+    try {
+      barrier.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    } catch (BrokenBarrierException e) {
+      throw new AssertionError(e);
+    } catch (TimeoutException e) {
+      throw new AssertionError("singletons weren't loaded concurrently");
+    }
+  }
+
+  static class AwaitsOthers1 {
+    AwaitsOthers1() {
+      awaitOthers();
+      loaded.add(getClass());
+    }
+  }
+
+  static class AwaitsOthers2 {
+    AwaitsOthers2() {
+      awaitOthers();
+      loaded.add(getClass());
+    }
+  }
+
+  static class AwaitsOthers3 {
+    AwaitsOthers3() {
+      awaitOthers();
+      loaded.add(getClass());
+    }
+  }
+
+  @Singleton
+  static class DependsOnProvider {
+    final Provider<Dependency> dependency;
+
+    @Inject DependsOnProvider(Provider<Dependency> dependency) {
+      this.dependency = dependency;
+      loaded.add(getClass());
+    }
+  }
+
+  @Singleton
+  static class Dependency {
+    Dependency() {
+      loaded.add(getClass());
+    }
+  }
+
+  static class Failing1 {
+    Failing1() {
+      throw new IllegalStateException(getClass().toString());
+    }
+  }
+
+  static class Failing2 {
+    Failing2() {
+      throw new IllegalStateException(getClass().toString());
+    }
+  }
+
+  interface Chicken {
+    Egg egg();
+  }
+
+  interface Egg {
+    Chicken chicken();
+  }
+
+  @Singleton
+  static class ChickenImpl implements Chicken {
+    final Egg egg;
+
+    @Inject ChickenImpl(Egg egg) {
+      this.egg = egg;
+    }
+
+    public Egg egg() {
+      return egg;
+    }
+  }
+
+  @Singleton
+  static class EggImpl implements Egg {
+    final Chicken chicken;
+
+    @Inject EggImpl(Chicken chicken) {
+      this.chicken = chicken;
+    }
+
+    public Chicken chicken() {
+      return chicken;
+    }
+  }
+}
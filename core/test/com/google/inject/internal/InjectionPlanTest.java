@@ -0,0 +1,309 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import static com.google.inject.Asserts.assertContains;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.MembersInjector;
+import com.google.inject.ProvisionException;
+import com.google.inject.TypeLiteral;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+import com.google.inject.spi.InjectionListener;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests constructor injection with compiled injection plans enabled.
+ */
+public class InjectionPlanTest extends TestCase {
+
+  private static final String FLAG = "guice_compile_injection_plans";
+
+  @Override protected void setUp() throws Exception {
+    System.setProperty(FLAG, "true");
+  }
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+  }
+
+  public void testPublicMembers() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bindConstant().annotatedWith(Names.named("count")).to("5");
+        bind(String.class).toInstance("hello");
+      }
+    });
+
+    PublicMembers instance = injector.getInstance(PublicMembers.class);
+    assertTrue(instance.constructedByPlan);
+    assertEquals("hello", instance.constructorParameter);
+    assertEquals(5, instance.count);
+    assertNotNull(instance.leaf);
+    assertEquals("hello", instance.methodParameter);
+    assertEquals(5L, instance.primitiveMethodParameter);
+    assertNotSame(instance.leaf, injector.getInstance(PublicMembers.class).leaf);
+  }
+
+  public void testPackagePrivateMembers() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(String.class).toInstance("hello");
+      }
+    });
+
+    PackagePrivateMembers instance = injector.getInstance(PackagePrivateMembers.class);
+    assertTrue(instance.constructedByPlan);
+    assertEquals("hello", instance.field);
+    assertEquals("hello", instance.inheritedField);
+    assertEquals("hello", instance.methodParameter);
+  }
+
+  public void testPrivateMembersAreInjectedReflectively() {
+    PrivateMembers instance = Guice.createInjector().getInstance(PrivateMembers.class);
+    assertFalse(instance.constructedByPlan);
+    assertNotNull(instance.leaf);
+  }
+
+  public void testFinalFieldsAreInjectedReflectively() {
+    FinalField instance = Guice.createInjector().getInstance(FinalField.class);
+    assertFalse(instance.constructedByPlan);
+    assertNotNull(instance.leaf);
+  }
+
+  public void testFailuresMatchUncompiledInjection() {
+    String compiled = failureMessage();
+    System.clearProperty(FLAG);
+    String uncompiled = failureMessage();
+    // the causes' stack traces differ, but nothing else should
+    assertEquals(withoutStackTraces(uncompiled), withoutStackTraces(compiled));
+    assertContains(compiled,
+        "1) Error in custom provider, java.lang.UnsupportedOperationException: field",
+        "for field at " + Failing.class.getName() + ".field");
+    // methods are injected in whatever order reflection returns them
+    assertContains(compiled, "Error injecting method, java.lang.IllegalStateException: method");
+    assertContains(compiled,
+        "Error in custom provider, java.lang.UnsupportedOperationException: method parameter",
+        "for parameter 0 at " + Failing.class.getName() + ".skipped");
+  }
+
+  private String failureMessage() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(String.class).annotatedWith(Names.named("field"))
+            .toProvider(new ThrowingProvider("field"));
+        bind(String.class).annotatedWith(Names.named("method parameter"))
+            .toProvider(new ThrowingProvider("method parameter"));
+      }
+    });
+    try {
+      injector.getInstance(Failing.class);
+      fail();
+      return null;
+    } catch (ProvisionException expected) {
+      assertFalse(Failing.skippedWasCalled);
+      return expected.getMessage();
+    }
+  }
+
+  private String withoutStackTraces(String message) {
+    return message.replaceAll("\n\t(at|\\.\\.\\.) [^\n]*", "");
+  }
+
+  public void testConstructorExceptions() {
+    try {
+      Guice.createInjector().getInstance(ThrowingConstructor.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(),
+          "1) Error injecting constructor, java.lang.IllegalStateException: constructor",
+          "at " + ThrowingConstructor.class.getName() + ".<init>");
+      assertTrue(expected.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  public void testCircularDependencies() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(Chicken.class).to(ChickenImpl.class);
+        bind(Egg.class).to(EggImpl.class);
+      }
+    });
+    ChickenImpl chicken = (ChickenImpl) injector.getInstance(Chicken.class);
+    assertTrue(chicken.constructedByPlan);
+    assertSame(chicken.egg, chicken.egg.chicken().egg());
+  }
+
+  public void testListenersAndUserMembersInjectors() {
+    final List<Object> injected = Lists.newArrayList();
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(String.class).toInstance("hello");
+        bindListener(Matchers.any(), new TypeListener() {
+          public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+            if (type.getRawType() == PackagePrivateMembers.class) {
+              encounter.register(new MembersInjector<I>() {
+                public void injectMembers(I instance) {
+                  injected.add("members injector");
+                }
+              });
+              encounter.register(new InjectionListener<I>() {
+                public void afterInjection(I instance) {
+                  injected.add(((PackagePrivateMembers) instance).field);
+                }
+              });
+            }
+          }
+        });
+      }
+    });
+
+    assertTrue(injector.getInstance(PackagePrivateMembers.class).constructedByPlan);
+    assertEquals(ImmutableList.of("members injector", "hello"), injected);
+  }
+
+  static boolean isConstructedByPlan() {
+    for (StackTraceElement element : new Throwable().getStackTrace()) {
+      if (element.getClassName().contains("$$InjectionPlanByGuice$$")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static class Leaf {}
+
+  public static class PublicMembers {
+    public final boolean constructedByPlan = isConstructedByPlan();
+    public final String constructorParameter;
+    @Inject @Named("count") public int count;
+    @Inject public Leaf leaf;
+    public String methodParameter;
+    public long primitiveMethodParameter;
+
+    @Inject public PublicMembers(String constructorParameter) {
+      this.constructorParameter = constructorParameter;
+    }
+
+    @Inject public boolean setMethodParameters(String s, @Named("count") long l) {
+      this.methodParameter = s;
+      this.primitiveMethodParameter = l;
+      return true;
+    }
+  }
+
+  static class PackagePrivateSuperclass {
+    @Inject String inheritedField;
+  }
+
+  static class PackagePrivateMembers extends PackagePrivateSuperclass {
+    final boolean constructedByPlan = isConstructedByPlan();
+    @Inject String field;
+    String methodParameter;
+
+    @Inject void setMethodParameter(String s) {
+      this.methodParameter = s;
+    }
+  }
+
+  static class PrivateMembers {
+    final boolean constructedByPlan = isConstructedByPlan();
+    @Inject private Leaf leaf;
+  }
+
+  static class FinalField {
+    final boolean constructedByPlan = isConstructedByPlan();
+    @Inject final Leaf leaf = null;
+  }
+
+  static class ThrowingProvider implements com.google.inject.Provider<String> {
+    private final String message;
+
+    ThrowingProvider(String message) {
+      this.message = message;
+    }
+
+    public String get() {
+      throw new UnsupportedOperationException(message);
+    }
+  }
+
+  static class Failing {
+    static boolean skippedWasCalled;
+
+    @Inject @Named("field") String field;
+
+    @Inject void throwing() {
+      throw new IllegalStateException("method");
+    }
+
+    @Inject void skipped(@Named("method parameter") String s) {
+      skippedWasCalled = true;
+    }
+  }
+
+  static class ThrowingConstructor {
+    @Inject ThrowingConstructor() {
+      throw new IllegalStateException("constructor");
+    }
+  }
+
+  interface Chicken {
+    Egg egg();
+  }
+
+  interface Egg {
+    Chicken chicken();
+  }
+
+  static class ChickenImpl implements Chicken {
+    final boolean constructedByPlan = isConstructedByPlan();
+    final Egg egg;
+
+    @Inject ChickenImpl(Egg egg) {
+      this.egg = egg;
+    }
+
+    public Egg egg() {
+      return egg;
+    }
+  }
+
+  static class EggImpl implements Egg {
+    final Chicken chicken;
+
+    @Inject EggImpl(Chicken chicken) {
+      this.chicken = chicken;
+    }
+
+    public Chicken chicken() {
+      return chicken;
+    }
+  }
+}
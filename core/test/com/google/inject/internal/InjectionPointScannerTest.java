@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.inject.AbstractModule;
+import com.google.inject.ConfigurationException;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.ImplementedBy;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.PrivateModule;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.ConstructorBinding;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.InjectionPoint;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests creating injectors with {@code -Dguice_injector_creation_threads}.
+ */
+public class InjectionPointScannerTest extends TestCase {
+
+  private static final String FLAG = "guice_injector_creation_threads";
+
+  @Override protected void setUp() throws Exception {
+    System.setProperty(FLAG, "4");
+  }
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+  }
+
+  public void testScansMatchDirectScans() {
+    InjectionPointScanner scanner = InjectionPointScanner.create();
+    try {
+      scanner.scan(Elements.getElements(new ValidModule()));
+      for (Class<?> c : ImmutableList.of(Root.class, Middle.class, Leaf.class, ServiceImpl.class)) {
+        TypeLiteral<?> type = TypeLiteral.get(c);
+        assertEquals(InjectionPoint.forConstructorOf(type), scanner.forConstructorOf(type));
+        assertEquals(InjectionPoint.forInstanceMethodsAndFields(type),
+            scanner.forInstanceMethodsAndFields(type));
+      }
+    } finally {
+      scanner.shutdown();
+    }
+  }
+
+  public void testFailedScansMatchDirectScans() {
+    InjectionPointScanner scanner = InjectionPointScanner.create();
+    try {
+      scanner.scan(Elements.getElements(new AbstractModule() {
+        @Override protected void configure() {
+          bind(TwoConstructors.class);
+        }
+      }));
+      TypeLiteral<TwoConstructors> type = TypeLiteral.get(TwoConstructors.class);
+      try {
+        scanner.forConstructorOf(type);
+        fail();
+      } catch (ConfigurationException expected) {
+        assertEquals(failure(type).getMessage(), expected.getMessage());
+      }
+    } finally {
+      scanner.shutdown();
+    }
+  }
+
+  private ConfigurationException failure(TypeLiteral<?> type) {
+    try {
+      InjectionPoint.forConstructorOf(type);
+      throw new AssertionError();
+    } catch (ConfigurationException e) {
+      return e;
+    }
+  }
+
+  public void testScansAreSharedByInjectors() {
+    System.clearProperty(FLAG);
+    Injector parent = Guice.createInjector();
+    AbstractModule childModule = new AbstractModule() {
+      @Override protected void configure() {
+        bind(Middle.class);
+      }
+    };
+    ConstructorBinding<?> first
+        = (ConstructorBinding<?>) parent.createChildInjector(childModule).getBinding(Middle.class);
+    ConstructorBinding<?> second
+        = (ConstructorBinding<?>) parent.createChildInjector(childModule).getBinding(Middle.class);
+    assertNotSame(first, second);
+    assertSame(first.getConstructor(), second.getConstructor());
+    assertSame(Iterables.getOnlyElement(first.getInjectableMembers()),
+        Iterables.getOnlyElement(second.getInjectableMembers()));
+    assertSame(first.getConstructor(),
+        InjectionPointScanner.DIRECT.forConstructorOf(TypeLiteral.get(Middle.class)));
+  }
+
+  public void testFailedScansAreSharedByInjectors() {
+    TypeLiteral<TwoConstructors> type = TypeLiteral.get(TwoConstructors.class);
+    ConfigurationException first = directFailure(type);
+    ConfigurationException second = directFailure(type);
+    assertNotSame(first, second);
+    assertEquals(failure(type).getMessage(), first.getMessage());
+    assertEquals(first.getMessage(), second.getMessage());
+  }
+
+  private ConfigurationException directFailure(TypeLiteral<?> type) {
+    try {
+      InjectionPointScanner.DIRECT.forConstructorOf(type);
+      throw new AssertionError();
+    } catch (ConfigurationException e) {
+      return e;
+    }
+  }
+
+  public void testInjectorMatchesSerialCreation() {
+    Injector parallel = Guice.createInjector(new ValidModule());
+    System.clearProperty(FLAG);
+    Injector serial = Guice.createInjector(new ValidModule());
+
+    assertEquals(serial.getAllBindings().keySet(), parallel.getAllBindings().keySet());
+    assertEquals(serial.getAllBindings().toString(), parallel.getAllBindings().toString());
+    assertNotNull(parallel.getInstance(Root.class).leaf.get());
+    assertSame(parallel.getInstance(Service.class), parallel.getInstance(Service.class));
+  }
+
+  public void testErrorsMatchSerialCreation() {
+    String parallel = creationFailure();
+    System.clearProperty(FLAG);
+    assertEquals(creationFailure(), parallel);
+  }
+
+  private String creationFailure() {
+    try {
+      Guice.createInjector(new AbstractModule() {
+        @Override protected void configure() {
+          bind(TwoConstructors.class);
+          bind(Root.class);
+          bind(DependsOnBrokenTypes.class);
+          install(new PrivateModule() {
+            @Override protected void configure() {
+              bind(Abstract.class);
+            }
+          });
+        }
+      });
+      fail();
+      return null;
+    } catch (CreationException expected) {
+      return expected.getMessage();
+    }
+  }
+
+  static class ValidModule extends AbstractModule {
+    @Override protected void configure() {
+      bind(Root.class);
+      install(new PrivateModule() {
+        @Override protected void configure() {
+          bind(Object.class).to(Middle.class);
+          expose(Object.class);
+        }
+      });
+    }
+
+    @Provides List<Object> provideList(Root root, Service service, Provider<Middle> middle) {
+      return null;
+    }
+  }
+
+  static class Root {
+    @Inject Provider<Leaf> leaf;
+    @Inject Root(Middle middle) {}
+  }
+
+  static class Middle {
+    @Inject void setService(Service service) {}
+  }
+
+  static class Leaf {}
+
+  @ImplementedBy(ServiceImpl.class)
+  interface Service {}
+
+  @Singleton
+  static class ServiceImpl implements Service {
+    @Inject Leaf leaf;
+  }
+
+  static class TwoConstructors {
+    @Inject TwoConstructors() {}
+    @Inject TwoConstructors(Leaf leaf) {}
+  }
+
+  static class DependsOnBrokenTypes {
+    @Inject DependsOnBrokenTypes(TwoConstructors twoConstructors, NoConstructor noConstructor) {}
+    @Inject void inject(Abstract a) {}
+  }
+
+  static class NoConstructor {
+    NoConstructor(String s) {}
+  }
+
+  abstract static class Abstract {}
+}
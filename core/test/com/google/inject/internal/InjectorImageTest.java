@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.AbstractModule;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import com.google.inject.internal.util.Classes;
+import com.google.inject.spi.InjectionPoint;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests creating injectors with {@code -Dguice_injector_image}.
+ */
+public class InjectorImageTest extends TestCase {
+
+  private static final String FLAG = "guice_injector_image";
+
+  private File file;
+
+  @Override protected void setUp() throws Exception {
+    file = File.createTempFile("guice-injector-image", ".bin");
+    file.delete();
+    System.setProperty(FLAG, file.getPath());
+  }
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+    file.delete();
+  }
+
+  public void testSavedAfterInjectorCreation() {
+    Leaf leaf = Guice.createInjector(new LeafModule()).getInstance(Leaf.class);
+    assertTrue(file.exists());
+    assertTrue(leaf.injected());
+
+    InjectorImage image = new InjectorImage(file);
+    TypeLiteral<Leaf> type = TypeLiteral.get(Leaf.class);
+    assertEquals(InjectionPoint.forConstructorOf(type), image.getConstructor(type));
+    assertEquals(ImmutableList.copyOf(InjectionPoint.forInstanceMethodsAndFields(type)),
+        ImmutableList.copyOf(image.getMembers(type)));
+    // the just-in-time binding of the constructor's parameter was scanned too
+    assertNotNull(image.getConstructor(TypeLiteral.get(Dependency.class)));
+  }
+
+  public void testRestoredInjectionPointsInject() {
+    // Scans are shared by the whole process, so the image is written for a type that no injector
+    // has scanned yet, so that the injector has to restore it from the image
+    InjectorImage image = new InjectorImage(file);
+    TypeLiteral<RestoredLeaf> type = TypeLiteral.get(RestoredLeaf.class);
+    image.recordConstructor(type, InjectionPoint.forConstructorOf(type));
+    image.recordMembers(type, InjectionPoint.forInstanceMethodsAndFields(type));
+    image.save();
+
+    RestoredLeaf leaf = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(RestoredLeaf.class);
+      }
+    }).getInstance(RestoredLeaf.class);
+    assertTrue(leaf.injected());
+    assertNull(leaf.optional);
+  }
+
+  public void testInjectorUsesImage() {
+    // an image is trusted while the class files are unchanged, so a member left out isn't injected
+    InjectorImage image = new InjectorImage(file);
+    TypeLiteral<PartlyRestoredLeaf> type = TypeLiteral.get(PartlyRestoredLeaf.class);
+    Set<InjectionPoint> members = Sets.newLinkedHashSet();
+    for (InjectionPoint member : InjectionPoint.forInstanceMethodsAndFields(type)) {
+      if (!member.getMember().getName().equals("rootMethod")) {
+        members.add(member);
+      }
+    }
+    image.recordMembers(type, members);
+    image.save();
+
+    PartlyRestoredLeaf leaf = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(PartlyRestoredLeaf.class);
+      }
+    }).getInstance(PartlyRestoredLeaf.class);
+    assertNotNull(leaf.constructed);
+    assertNotNull(leaf.rootField);
+    assertNotNull(leaf.leafField);
+    assertFalse(leaf.rootMethodCalled);
+  }
+
+  public void testOptionalMembersStayOptional() {
+    InjectorImage image = new InjectorImage(file);
+    TypeLiteral<Leaf> type = TypeLiteral.get(Leaf.class);
+    image.recordMembers(type, InjectionPoint.forInstanceMethodsAndFields(type));
+    List<InjectionPoint> members = ImmutableList.copyOf(image.getMembers(type));
+    for (InjectionPoint member : members) {
+      assertEquals(member.getMember().getName().equals("optional"), member.isOptional());
+    }
+  }
+
+  public void testChangedClassesAreScannedAgain() throws Exception {
+    InjectorImage image = new InjectorImage(file);
+    TypeLiteral<Leaf> type = TypeLiteral.get(Leaf.class);
+    image.recordMembers(type, InjectionPoint.forInstanceMethodsAndFields(type));
+    assertNotNull(image.getMembers(type));
+
+    String stamp = Classes.getClassFileStamp(Root.class);
+    File classFile = new File(stamp.substring(0, stamp.lastIndexOf('@')));
+    long lastModified = classFile.lastModified();
+    try {
+      assertTrue(classFile.setLastModified(lastModified - 60000));
+      // the classes this process loaded haven't changed, but the ones a later run loads have
+      assertNotNull(image.getMembers(type));
+      assertNull(image.getMembers(TypeLiteral.get(reload(Leaf.class))));
+    } finally {
+      classFile.setLastModified(lastModified);
+    }
+    assertNotNull(image.getMembers(type));
+  }
+
+  public void testConcurrentSavesDoNotCorruptImage() throws Exception {
+    final List<InjectorImage> images = Lists.newArrayList();
+    for (Class<?> type : ImmutableList.of(Leaf.class, Root.class, Dependency.class)) {
+      InjectorImage image = new InjectorImage(file);
+      image.recordConstructor(TypeLiteral.get(type), InjectionPoint.forConstructorOf(type));
+      images.add(image);
+    }
+    // like processes that start together, each saves its own entries to the same file
+    final CyclicBarrier barrier = new CyclicBarrier(images.size());
+    List<Thread> threads = Lists.newArrayList();
+    for (final InjectorImage image : images) {
+      Thread thread = new Thread() {
+        @Override public void run() {
+          try {
+            barrier.await(10, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          image.save();
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    InjectorImage saved = new InjectorImage(file);
+    int found = 0;
+    for (Class<?> type : ImmutableList.of(Leaf.class, Root.class, Dependency.class)) {
+      if (saved.getConstructor(TypeLiteral.get(type)) != null) {
+        found++;
+      }
+    }
+    assertEquals("the last save wins", 1, found);
+    for (File sibling : file.getAbsoluteFile().getParentFile().listFiles()) {
+      assertFalse("left " + sibling, sibling.getName().startsWith(file.getName() + ".tmp"));
+    }
+  }
+
+  public void testFailedCreationIsNotSaved() {
+    try {
+      Guice.createInjector(new AbstractModule() {
+        @Override protected void configure() {
+          bind(TwoConstructors.class);
+        }
+      });
+      fail();
+    } catch (CreationException expected) {
+    }
+    assertFalse(file.exists());
+    assertNull(new InjectorImage(file).getConstructor(TypeLiteral.get(TwoConstructors.class)));
+  }
+
+  public void testParameterizedTypesAreNotSaved() {
+    InjectorImage image = new InjectorImage(file);
+    TypeLiteral<Generic<String>> type = new TypeLiteral<Generic<String>>() {};
+    image.recordConstructor(type, InjectionPoint.forConstructorOf(type));
+    assertNull(image.getConstructor(type));
+  }
+
+  public void testCorruptImageIsIgnored() throws Exception {
+    com.google.common.io.Files.write(new byte[] { 1, 2, 3 }, file);
+    InjectorImage image = new InjectorImage(file);
+    assertNull(image.getConstructor(TypeLiteral.get(Leaf.class)));
+    Guice.createInjector(new LeafModule()).getInstance(Leaf.class);
+  }
+
+  /** Loads {@code type} and the other classes nested in this test again, as a later run would. */
+  private static Class<?> reload(Class<?> type) throws ClassNotFoundException {
+    final String nested = InjectorImageTest.class.getName() + "$";
+    URL classes = type.getProtectionDomain().getCodeSource().getLocation();
+    ClassLoader loader
+        = new URLClassLoader(new URL[] { classes }, InjectorImageTest.class.getClassLoader()) {
+      @Override protected synchronized Class<?> loadClass(String name, boolean resolve)
+          throws ClassNotFoundException {
+        if (!name.startsWith(nested)) {
+          return super.loadClass(name, resolve);
+        }
+        Class<?> loaded = findLoadedClass(name);
+        return loaded != null ? loaded : findClass(name);
+      }
+    };
+    return loader.loadClass(type.getName());
+  }
+
+  static class LeafModule extends AbstractModule {
+    @Override protected void configure() {
+      bind(Leaf.class);
+    }
+  }
+
+  static class Root {
+    @Inject Dependency rootField;
+    boolean rootMethodCalled;
+
+    @Inject void rootMethod(Dependency dependency) {
+      rootMethodCalled = true;
+    }
+  }
+
+  static class Leaf extends Root {
+    final Dependency constructed;
+    @Inject Dependency leafField;
+    @Inject(optional = true) Runnable optional;
+
+    @Inject Leaf(Dependency dependency) {
+      this.constructed = dependency;
+    }
+
+    @javax.inject.Inject void leafMethod(Dependency dependency) {}
+
+    boolean injected() {
+      return constructed != null && rootField != null && leafField != null && rootMethodCalled;
+    }
+  }
+
+  static class RestoredLeaf extends Leaf {
+    @Inject RestoredLeaf(Dependency dependency) {
+      super(dependency);
+    }
+  }
+
+  static class PartlyRestoredLeaf extends Leaf {
+    @Inject PartlyRestoredLeaf(Dependency dependency) {
+      super(dependency);
+    }
+  }
+
+  static class Dependency {}
+
+  static class Generic<T> {
+    @Inject Generic() {}
+  }
+
+  static class TwoConstructors {
+    @Inject TwoConstructors() {}
+    @Inject TwoConstructors(Dependency dependency) {}
+  }
+}
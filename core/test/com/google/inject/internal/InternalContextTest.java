@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the construction contexts of {@link InternalContext}.
+ */
+public class InternalContextTest extends TestCase {
+
+  public void testManyChildInjectorsDoNotGrowContext() throws ErrorsException {
+    Injector parent = Guice.createInjector();
+    for (int i = 0; i < 10000; i++) {
+      Injector child = parent.createChildInjector(new AbstractModule() {
+        @Override protected void configure() {
+          bind(Egg.class).to(ChickenEgg.class);
+        }
+      });
+      // constructing the egg again while its chicken is constructed makes a circular proxy
+      ChickenEgg egg = (ChickenEgg) child.getInstance(Egg.class);
+      assertNotNull(egg.chicken.egg);
+    }
+
+    int capacity = ((InjectorImpl) parent).callInContext(new ContextualCallable<Integer>() {
+      public Integer call(InternalContext context) {
+        return context.getConstructionCapacity();
+      }
+    });
+    assertEquals(16, capacity);
+  }
+
+  public void testCollidingSlots() {
+    InternalContext context = new InternalContext();
+    List<Object> owners = Lists.newArrayList();
+    List<ConstructionContext<?>> constructionContexts = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      Object owner = new Object();
+      owners.add(owner);
+      // every slot has the same hash in a table of up to 256 entries
+      constructionContexts.add(context.getConstructionContext(owner, i * 256));
+    }
+    assertEquals(256, context.getConstructionCapacity());
+
+    List<Integer> order = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(0));
+    for (int released = 0; released < order.size(); released++) {
+      int i = order.get(released);
+      assertSame(constructionContexts.get(i),
+          context.getConstructionContext(owners.get(i), i * 256));
+      context.releaseConstructionContext(owners.get(i), i * 256);
+      for (int j : order.subList(released + 1, order.size())) {
+        assertSame(constructionContexts.get(j),
+            context.getConstructionContext(owners.get(j), j * 256));
+      }
+    }
+  }
+
+  interface Egg {}
+
+  static class ChickenEgg implements Egg {
+    final Chicken chicken;
+
+    @Inject ChickenEgg(Chicken chicken) {
+      this.chicken = chicken;
+    }
+  }
+
+  static class Chicken {
+    final Egg egg;
+
+    @Inject Chicken(Egg egg) {
+      this.egg = egg;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import static com.google.inject.Asserts.assertContains;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.ProvisionException;
+import com.google.inject.matcher.Matchers;
+
+import junit.framework.TestCase;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Tests invoking constructors and methods with {@code -Dguice_invocation_option=REFLECTION}.
+ */
+public class ReflectionInvocationTest extends TestCase {
+
+  private static final String FLAG = "guice_invocation_option";
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+  }
+
+  public void testFastClassesByDefault() {
+    Invoked invoked = newInjector().getInstance(Invoked.class);
+    assertTrue(invoked.constructedByFastClass);
+    assertTrue(invoked.methodInvokedByFastClass);
+    assertTrue(invoked.provided.providedByFastClass);
+  }
+
+  public void testReflection() {
+    System.setProperty(FLAG, "REFLECTION");
+    Invoked invoked = newInjector().getInstance(Invoked.class);
+    assertFalse(invoked.constructedByFastClass);
+    assertFalse(invoked.methodInvokedByFastClass);
+    assertFalse(invoked.provided.providedByFastClass);
+  }
+
+  public void testReflectionWithInterceptors() {
+    System.setProperty(FLAG, "REFLECTION");
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bindInterceptor(Matchers.only(Intercepted.class), Matchers.any(), new MethodInterceptor() {
+          public Object invoke(MethodInvocation invocation) throws Throwable {
+            return "intercepted " + invocation.proceed();
+          }
+        });
+      }
+    });
+    Intercepted intercepted = injector.getInstance(Intercepted.class);
+    assertFalse(intercepted.constructedByFastClass);
+    assertEquals("intercepted hello", intercepted.hello());
+  }
+
+  public void testReflectionWithExceptions() {
+    System.setProperty(FLAG, "REFLECTION");
+    try {
+      Guice.createInjector().getInstance(Throwing.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(),
+          "1) Error injecting constructor, java.lang.IllegalStateException: constructor");
+      assertTrue(expected.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  public void testInvalidOptionFallsBackToFastClasses() {
+    System.setProperty(FLAG, "MAGIC");
+    assertEquals(InternalFlags.InvocationOption.FAST_CLASS, InternalFlags.getInvocationOption());
+  }
+
+  private Injector newInjector() {
+    return Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {}
+
+      @Provides public Provided provide() {
+        return new Provided(isInvokedByFastClass());
+      }
+    });
+  }
+
+  static boolean isInvokedByFastClass() {
+    for (StackTraceElement element : new Throwable().getStackTrace()) {
+      if (element.getClassName().contains("$$FastClassByGuice$$")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static class Provided {
+    final boolean providedByFastClass;
+
+    Provided(boolean providedByFastClass) {
+      this.providedByFastClass = providedByFastClass;
+    }
+  }
+
+  public static class Invoked {
+    final boolean constructedByFastClass = isInvokedByFastClass();
+    boolean methodInvokedByFastClass;
+    final Provided provided;
+
+    @Inject public Invoked(Provided provided) {
+      this.provided = provided;
+    }
+
+    @Inject public void method() {
+      methodInvokedByFastClass = isInvokedByFastClass();
+    }
+  }
+
+  public static class Intercepted {
+    final boolean constructedByFastClass = isInvokedByFastClass();
+
+    @Inject public Intercepted() {}
+
+    public String hello() {
+      return "hello";
+    }
+  }
+
+  public static class Throwing {
+    @Inject public Throwing() {
+      throw new IllegalStateException("constructor");
+    }
+  }
+}
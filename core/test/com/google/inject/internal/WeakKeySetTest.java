@@ -88,6 +88,21 @@ public class WeakKeySetTest extends TestCase {
     GcFinalization.awaitClear(weakKeyRef);
   }
   
+  public void testSourcesAreConvertedWhenReported() {
+    TestState state1 = new TestState();
+    TestState state2 = new TestState();
+    Key<Integer> key = Key.get(Integer.class);
+    Object source = Key.get(String.class);
+
+    set.add(key, state1, source);
+    set.add(key, state2, Key.get(String.class));
+    assertEquals(ImmutableSet.of(Errors.convert(source)), set.getSources(key));
+
+    state1 = null;
+    GcFinalization.awaitFullGc();
+    assertEquals(ImmutableSet.of(Errors.convert(source)), set.getSources(key));
+  }
+
   public void testEviction_nullSource() {
     TestState state = new TestState();
     Key<Integer> key = Key.get(Integer.class);
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal.util;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.lang.reflect.Member;
+
+/**
+ * Tests storing line numbers with {@code -Dguice_line_number_index}.
+ */
+public class LineNumberIndexTest extends TestCase {
+
+  private File file;
+
+  @Override protected void setUp() throws Exception {
+    file = File.createTempFile("guice-line-numbers", ".txt");
+    file.delete();
+  }
+
+  @Override protected void tearDown() throws Exception {
+    file.delete();
+  }
+
+  public void testRecordsAndRestores() throws Exception {
+    Member method = Indexed.class.getDeclaredMethod("method", String.class);
+    Member field = Indexed.class.getDeclaredField("field");
+    LineNumbers parsed = new LineNumbers(Indexed.class);
+
+    LineNumbers recorded = new LineNumberIndex(file).get(Indexed.class);
+    assertEquals(parsed.getLineNumber(method), recorded.getLineNumber(method));
+    assertEquals(1, Files.readLines(file, Charsets.UTF_8).size());
+
+    LineNumbers restored = new LineNumberIndex(file).get(Indexed.class);
+    assertEquals("LineNumberIndexTest.java", restored.getSource());
+    assertEquals(parsed.getFirstLine(), restored.getFirstLine());
+    assertEquals(parsed.getLineNumber(method), restored.getLineNumber(method));
+    assertEquals(parsed.getLineNumber(field), restored.getLineNumber(field));
+    assertEquals(parsed.getLines(), restored.getLines());
+    assertEquals(1, Files.readLines(file, Charsets.UTF_8).size());
+  }
+
+  public void testUsesIndexInsteadOfBytecode() throws Exception {
+    Member method = Indexed.class.getDeclaredMethod("method", String.class);
+    Files.write(Indexed.class.getName() + "\t" + Classes.getClassFileStamp(Indexed.class)
+        + "\tIndexed.java\t7\tmethod(Ljava/lang/String;)V=12345\n", file, Charsets.UTF_8);
+
+    LineNumbers restored = new LineNumberIndex(file).get(Indexed.class);
+    assertEquals("Indexed.java", restored.getSource());
+    assertEquals(7, restored.getFirstLine());
+    assertEquals(12345, restored.getLineNumber(method).intValue());
+  }
+
+  public void testStaleAndGarbledEntriesAreReplaced() throws Exception {
+    Member method = Indexed.class.getDeclaredMethod("method", String.class);
+    Integer line = new LineNumbers(Indexed.class).getLineNumber(method);
+
+    Files.write(Indexed.class.getName() + "\tstale\tIndexed.java\t7\n", file, Charsets.UTF_8);
+    assertEquals(line, new LineNumberIndex(file).get(Indexed.class).getLineNumber(method));
+
+    Files.append(Indexed.class.getName() + "\t" + Classes.getClassFileStamp(Indexed.class)
+        + "\tIndexed.java\tgarbled\n", file, Charsets.UTF_8);
+    assertEquals(line, new LineNumberIndex(file).get(Indexed.class).getLineNumber(method));
+
+    // each bad entry was followed by a fresh one, and the last of them is used from now on
+    assertEquals(4, Files.readLines(file, Charsets.UTF_8).size());
+    assertEquals(line, new LineNumberIndex(file).get(Indexed.class).getLineNumber(method));
+    assertEquals(4, Files.readLines(file, Charsets.UTF_8).size());
+  }
+
+  public void testClassesWithoutClassFilesAreNotIndexed() throws Exception {
+    assertNull(Classes.getClassFileStamp(String.class));
+    new LineNumberIndex(file).get(String.class);
+    assertFalse(file.exists());
+  }
+
+  static class Indexed {
+    String field;
+
+    Indexed() {
+      field = "field";
+    }
+
+    void method(String s) {
+      field = s;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.google.inject.spi;
 import static com.google.inject.internal.InternalFlags.getIncludeStackTraceOption;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
+import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Binder;
 import com.google.inject.Binding;
@@ -15,6 +16,7 @@ import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -126,6 +128,35 @@ public class ElementSourceTest extends TestCase {
     fail("The test should not reach this line.");
   }  
 
+  public void testLazySourcesMatchEagerSources() {
+    List<ElementSource> sources = Lists.newArrayList();
+    try {
+      for (String lazy : new String[] { "false", "true" }) {
+        System.setProperty("guice_lazy_element_sources", lazy);
+        sources.add(getSampleSource());
+      }
+    } finally {
+      System.clearProperty("guice_lazy_element_sources");
+    }
+    ElementSource eager = sources.get(0);
+    ElementSource lazy = sources.get(1);
+    assertEquals(eager.getDeclaringSource(), lazy.getDeclaringSource());
+    assertEquals(Arrays.asList(eager.getStackTrace()), Arrays.asList(lazy.getStackTrace()));
+    assertEquals(eager.getModuleClassNames(), lazy.getModuleClassNames());
+    assertEquals(eager.getModuleConfigurePositionsInStackTrace(),
+        lazy.getModuleConfigurePositionsInStackTrace());
+  }
+
+  private ElementSource getSampleSource() {
+    for (Element element : Elements.getElements(new A())) {
+      if (element instanceof Binding
+          && SampleAnnotation.class.equals(((Binding<?>) element).getKey().getAnnotationType())) {
+        return (ElementSource) element.getSource();
+      }
+    }
+    throw new AssertionError();
+  }
+
   private ModuleSource createModuleSource() {
     // First module
     StackTraceElement[] partialCallStack = new StackTraceElement[1];
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.Stage;
+
+import junit.framework.TestCase;
+
+/*if[AOP]*/
+import com.google.inject.matcher.Matchers;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+/*end[AOP]*/
+
+/**
+ * Tests creating injectors with {@code -Dguice_profile_injector_creation=true}.
+ */
+public class InjectorCreationProfileTest extends TestCase {
+
+  private static final String FLAG = "guice_profile_injector_creation";
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+  }
+
+  public void testNotProfiledByDefault() {
+    assertNull(InjectorCreationProfile.of(Guice.createInjector(new OuterModule())));
+  }
+
+  public void testProfile() {
+    System.setProperty(FLAG, "true");
+    InjectorCreationProfile profile
+        = InjectorCreationProfile.of(Guice.createInjector(new OuterModule()));
+
+    assertTrue(profile.getPhaseNanos().containsKey("Module execution"));
+    assertTrue(profile.getPhaseNanos().containsKey("Binding initialization"));
+    assertTrue(profile.getPhaseNanos().containsKey("Preloading singletons"));
+    long total = 0;
+    for (long nanos : profile.getPhaseNanos().values()) {
+      assertTrue(nanos >= 0);
+      total += nanos;
+    }
+    assertEquals(total, profile.getTotalNanos());
+
+    assertTrue(profile.getModuleConfigureNanos().containsKey(OuterModule.class.getName()));
+    assertTrue(profile.getModuleConfigureNanos().containsKey(InnerModule.class.getName()));
+    assertTrue(profile.getBindingInitializationNanos().containsKey(Key.get(Injected.class)));
+    /*if[AOP]*/
+    assertTrue(profile.getFastClassCount() > 0);
+    /*end[AOP]*/
+  }
+
+  public void testModuleTimeExcludesInstalledModules() {
+    System.setProperty(FLAG, "true");
+    InjectorCreationProfile profile = InjectorCreationProfile.of(
+        Guice.createInjector(new AbstractModule() {
+          @Override protected void configure() {
+            install(new SlowModule());
+          }
+        }));
+    long slow = profile.getModuleConfigureNanos().get(SlowModule.class.getName());
+    assertTrue(slow >= 10000000L);
+    for (String module : profile.getModuleConfigureNanos().keySet()) {
+      if (!module.equals(SlowModule.class.getName())) {
+        assertTrue(profile.getModuleConfigureNanos().get(module) < slow);
+      }
+    }
+  }
+
+  public void testToolStageAndChildInjectors() {
+    System.setProperty(FLAG, "true");
+    Injector injector = Guice.createInjector(Stage.TOOL, new OuterModule());
+    assertNotNull(InjectorCreationProfile.of(injector));
+
+    Injector parent = Guice.createInjector();
+    Injector child = parent.createChildInjector(new OuterModule());
+    assertNotSame(InjectorCreationProfile.of(parent), InjectorCreationProfile.of(child));
+    assertTrue(InjectorCreationProfile.of(child).getModuleConfigureNanos()
+        .containsKey(OuterModule.class.getName()));
+    assertFalse(InjectorCreationProfile.of(parent).getModuleConfigureNanos()
+        .containsKey(OuterModule.class.getName()));
+  }
+
+  /*if[AOP]*/
+  public void testEnhancers() {
+    System.setProperty(FLAG, "true");
+    InjectorCreationProfile profile = InjectorCreationProfile.of(
+        Guice.createInjector(new AbstractModule() {
+          @Override protected void configure() {
+            bind(Intercepted.class);
+            bindInterceptor(Matchers.only(Intercepted.class), Matchers.any(),
+                new MethodInterceptor() {
+                  public Object invoke(MethodInvocation invocation) throws Throwable {
+                    return invocation.proceed();
+                  }
+                });
+          }
+        }));
+    assertEquals(1, profile.getEnhancerCount());
+    assertTrue(profile.getEnhancerNanos() > 0);
+  }
+  /*end[AOP]*/
+
+  static class OuterModule extends AbstractModule {
+    @Override protected void configure() {
+      install(new InnerModule());
+      bind(Injected.class).asEagerSingleton();
+    }
+
+    @Provides String provideString(Injected injected) {
+      return "string";
+    }
+  }
+
+  static class InnerModule extends AbstractModule {
+    @Override protected void configure() {
+      bind(Integer.class).toInstance(1);
+    }
+  }
+
+  static class SlowModule extends AbstractModule {
+    @Override protected void configure() {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  static class Intercepted {
+    public void intercepted() {}
+  }
+
+  static class Injected {
+    @Inject Injected() {}
+
+    @Inject void inject(Integer i) {}
+  }
+}
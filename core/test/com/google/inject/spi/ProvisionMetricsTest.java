@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.ProvisionException;
+import com.google.inject.Singleton;
+import com.google.inject.matcher.Matchers;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests creating injectors with {@code -Dguice_provision_metrics=true}.
+ */
+public class ProvisionMetricsTest extends TestCase {
+
+  private static final String FLAG = "guice_provision_metrics";
+
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(FLAG);
+  }
+
+  public void testNoMetricsByDefault() {
+    Injector injector = Guice.createInjector(new MetricsModule());
+    injector.getInstance(Unscoped.class);
+    assertTrue(ProvisionMetrics.snapshot(injector).isEmpty());
+  }
+
+  public void testCountsProvisions() {
+    System.setProperty(FLAG, "true");
+    Injector injector = Guice.createInjector(new MetricsModule());
+    for (int i = 0; i < 3; i++) {
+      injector.getInstance(Unscoped.class);
+      injector.getInstance(Scoped.class);
+      injector.getInstance(String.class);
+    }
+    try {
+      injector.getInstance(Integer.class);
+      fail();
+    } catch (ProvisionException expected) {
+    }
+
+    Map<Key<?>, ProvisionMetrics> snapshot = ProvisionMetrics.snapshot(injector);
+    assertEquals(3, snapshot.get(Key.get(Unscoped.class)).getCount());
+    assertEquals(1, snapshot.get(Key.get(Scoped.class)).getCount());
+    assertEquals(3, snapshot.get(Key.get(String.class)).getCount());
+    assertEquals(0, snapshot.get(Key.get(String.class)).getFailureCount());
+    assertEquals(1, snapshot.get(Key.get(Integer.class)).getCount());
+    assertEquals(1, snapshot.get(Key.get(Integer.class)).getFailureCount());
+
+    ProvisionMetrics unscoped = snapshot.get(Key.get(Unscoped.class));
+    assertTrue(unscoped.getTotalNanos() > 0);
+    assertTrue(unscoped.getPercentileNanos(50) <= unscoped.getPercentileNanos(100));
+    assertTrue(unscoped.getPercentileNanos(100) * 3 >= unscoped.getTotalNanos());
+  }
+
+  public void testListenersStillNotified() {
+    System.setProperty(FLAG, "true");
+    final AtomicInteger notified = new AtomicInteger();
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bindListener(Matchers.any(), new ProvisionListener() {
+          public <T> void onProvision(ProvisionInvocation<T> provision) {
+            notified.incrementAndGet();
+          }
+        });
+      }
+    });
+    injector.getInstance(Unscoped.class);
+    injector.getInstance(Unscoped.class);
+    assertEquals(2, notified.get());
+    assertEquals(2, ProvisionMetrics.snapshot(injector).get(Key.get(Unscoped.class)).getCount());
+  }
+
+  public void testConcurrentProvisions() throws InterruptedException {
+    System.setProperty(FLAG, "true");
+    final Injector injector = Guice.createInjector();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override public void run() {
+          for (int j = 0; j < 1000; j++) {
+            injector.getInstance(Unscoped.class);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(4000, ProvisionMetrics.snapshot(injector).get(Key.get(Unscoped.class)).getCount());
+  }
+
+  public void testPercentiles() {
+    // 10 provisions under 8ns, 89 under 1024ns and 1 under 2^20ns
+    long[] histogram = new long[40];
+    histogram[3] = 10;
+    histogram[10] = 89;
+    histogram[20] = 1;
+    ProvisionMetrics metrics = new ProvisionMetrics(100, 0, 50000, histogram);
+    assertEquals(7, metrics.getPercentileNanos(0));
+    assertEquals(7, metrics.getPercentileNanos(10));
+    assertEquals(1023, metrics.getPercentileNanos(50));
+    assertEquals(1023, metrics.getPercentileNanos(99));
+    assertEquals((1 << 20) - 1, metrics.getPercentileNanos(100));
+    assertEquals(500, metrics.getMeanNanos());
+    assertEquals(0, new ProvisionMetrics(0, 0, 0, new long[40]).getPercentileNanos(50));
+  }
+
+  static class MetricsModule extends AbstractModule {
+    @Override protected void configure() {}
+
+    @Provides String provideString() {
+      return "string";
+    }
+
+    @Provides Integer provideInteger() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  static class Unscoped {}
+
+  @Singleton
+  static class Scoped {}
+}
@@ -129,15 +129,17 @@ final class FactoryProvider2 <F> implements InvocationHandler,
 
     /** true if {@link #isValidForOptimizedAssistedInject} returned true. */
     final boolean optimized;
+    /** the arguments of the calls in progress, null if not optimized or without parameters. */
+    final AssistedArguments arguments;
     /** the list of optimized providers, empty if not optimized. */
-    final List<ThreadLocalProvider> providers;
+    final List<ArgumentProvider> providers;
     /** used to perform optimized factory creations. */
     volatile Binding<?> cachedBinding; // TODO: volatile necessary?
 
     AssistData(Constructor<?> constructor, Key<?> returnType, ImmutableList<Key<?>> paramTypes,
         TypeLiteral<?> implementationType, Method factoryMethod,
         Set<Dependency<?>> dependencies,
-        boolean optimized, List<ThreadLocalProvider> providers) {
+        boolean optimized, AssistedArguments arguments, List<ArgumentProvider> providers) {
       this.constructor = constructor;
       this.returnType = returnType;
       this.paramTypes = paramTypes;
@@ -145,6 +147,7 @@ final class FactoryProvider2 <F> implements InvocationHandler,
       this.factoryMethod = factoryMethod;
       this.dependencies = dependencies;
       this.optimized = optimized;
+      this.arguments = arguments;
       this.providers = providers;
     }
 
@@ -273,7 +276,8 @@ final class FactoryProvider2 <F> implements InvocationHandler,
         }
 
         Constructor<?> constructor = (Constructor<?>) ctorInjectionPoint.getMember();
-        List<ThreadLocalProvider> providers = Collections.emptyList();
+        AssistedArguments arguments = null;
+        List<ArgumentProvider> providers = Collections.emptyList();
         Set<Dependency<?>> deps = getDependencies(ctorInjectionPoint, implementation);
         boolean optimized = false;
         // Now go through all dependencies of the implementation and see if it is OK to
@@ -282,16 +286,19 @@ final class FactoryProvider2 <F> implements InvocationHandler,
         // or an Injector), because it caches a single child injector and mutates the Provider
         // of the arguments in a ThreadLocal.
         if(isValidForOptimizedAssistedInject(deps, implementation.getRawType(), factoryType)) {
-          ImmutableList.Builder<ThreadLocalProvider> providerListBuilder = ImmutableList.builder();
+          ImmutableList.Builder<ArgumentProvider> providerListBuilder = ImmutableList.builder();
+          if (!params.isEmpty()) {
+            arguments = new AssistedArguments();
+          }
           for(int i = 0; i < params.size(); i++) {
-            providerListBuilder.add(new ThreadLocalProvider());
+            providerListBuilder.add(new ArgumentProvider(arguments, i));
           }
           providers = providerListBuilder.build();
           optimized = true;
         }
         assistDataBuilder.put(method,
             new AssistData(constructor, returnType, immutableParamList, implementation,
-                method, removeAssistedDeps(deps), optimized, providers));
+                method, removeAssistedDeps(deps), optimized, arguments, providers));
       }
 
       // If we generated any errors (from finding matching constructors, for instance), throw an exception.
@@ -623,7 +630,7 @@ final class FactoryProvider2 <F> implements InvocationHandler,
           }
         } else {
           for (Key<?> paramKey : data.paramTypes) {
-            // Bind to our ThreadLocalProviders.
+            // Bind to providers of the arguments of the call in progress.
             binder.bind((Key) paramKey).toProvider(data.providers.get(p++));
           }
         }
@@ -671,11 +678,15 @@ final class FactoryProvider2 <F> implements InvocationHandler,
     } else {
       provider = getBindingFromNewInjector(method, args, data).getProvider();
     }
+    // One thread-local holds all the arguments of the call. A factory method may be called again
+    // while its arguments are being provided, so the outer call's arguments are restored after.
+    AssistedArguments arguments = data.arguments;
+    Object[] outerArgs = null;
+    if (arguments != null) {
+      outerArgs = arguments.get();
+      arguments.set(args);
+    }
     try {
-      int p = 0;
-      for(ThreadLocalProvider tlp : data.providers) {
-        tlp.set(args[p++]);
-      }
       return provider.get();
     } catch (ProvisionException e) {
       // if this is an exception declared by the factory method, throw it as-is
@@ -688,8 +699,12 @@ final class FactoryProvider2 <F> implements InvocationHandler,
       }
       throw e;
     } finally {
-      for(ThreadLocalProvider tlp : data.providers) {
-        tlp.remove();
+      if (arguments != null) {
+        if (outerArgs == null) {
+          arguments.remove();
+        } else {
+          arguments.set(outerArgs);
+        }
       }
     }
   }
@@ -726,13 +741,27 @@ final class FactoryProvider2 <F> implements InvocationHandler,
     return false;
   }
 
+  /** The arguments of the optimized factory method calls in progress on each thread. */
+  private static class AssistedArguments extends ThreadLocal<Object[]> {}
+
   // not <T> because we'll never know and this is easier than suppressing warnings.
-  private static class ThreadLocalProvider extends ThreadLocal<Object> implements Provider<Object> {
-    @Override
-    protected Object initialValue() {
-      throw new IllegalStateException(
-          "Cannot use optimized @Assisted provider outside the scope of the constructor."
-              + " (This should never happen.  If it does, please report it.)");
+  private static class ArgumentProvider implements Provider<Object> {
+    private final AssistedArguments arguments;
+    private final int index;
+
+    ArgumentProvider(AssistedArguments arguments, int index) {
+      this.arguments = arguments;
+      this.index = index;
+    }
+
+    public Object get() {
+      Object[] args = arguments.get();
+      if (args == null) {
+        throw new IllegalStateException(
+            "Cannot use optimized @Assisted provider outside the scope of the constructor."
+                + " (This should never happen.  If it does, please report it.)");
+      }
+      return args[index];
     }
   }
 }
@@ -1116,6 +1116,35 @@ public class FactoryProvider2Test extends TestCase {
     assertSame(delegate, user.delegate);
   }
 
+  public void testArgumentsOfConcurrentCallsAreSeparate() throws Exception {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      public void configure() {
+        install(new FactoryModuleBuilder().build(Delegater.Factory.class));
+      }
+    });
+    final Delegater.Factory factory = injector.getInstance(Delegater.Factory.class);
+    final AtomicInteger mismatches = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override public void run() {
+          for (int j = 0; j < 1000; j++) {
+            Delegater delegate = new Delegater();
+            if (factory.create(delegate).delegate != delegate) {
+              mismatches.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, mismatches.get());
+  }
+
   static class Delegater {
     interface Factory {
       Delegater create(Delegater delegate);
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.multibindings;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An unmodifiable map whose keys are shared by all the maps of a {@link MapBinder}, and whose
+ * values are in an array. The keys and the lookup from a key to its position in the array are
+ * computed once, when the map binder is initialized, so each injected map only has to fill an
+ * array. Iteration is in binding order, like the maps it replaces.
+ */
+final class IndexedMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+  /**
+   * The keys of a map binder, in binding order, and a lookup from each key to its position. Enum
+   * keys are looked up by ordinal, and other keys in a hash table.
+   */
+  static final class Keys<K> implements Serializable {
+    final ImmutableList<K> keys;
+    /** The positions of enum keys by ordinal, -1 if absent. Null unless keys are enum constants. */
+    private final int[] positionsByOrdinal;
+    private final Class<?> enumType;
+    /** The positions of the keys. Null if keys are enum constants. */
+    private final ImmutableMap<K, Integer> positions;
+
+    private Keys(ImmutableList<K> keys) {
+      this.keys = keys;
+      Class<?> enumType = enumTypeOf(keys);
+      if (enumType != null) {
+        this.enumType = enumType;
+        this.positionsByOrdinal = new int[enumType.getEnumConstants().length];
+        Arrays.fill(positionsByOrdinal, -1);
+        for (int i = 0; i < keys.size(); i++) {
+          positionsByOrdinal[((Enum<?>) keys.get(i)).ordinal()] = i;
+        }
+        this.positions = null;
+      } else {
+        this.enumType = null;
+        this.positionsByOrdinal = null;
+        ImmutableMap.Builder<K, Integer> positions = ImmutableMap.builder();
+        for (int i = 0; i < keys.size(); i++) {
+          positions.put(keys.get(i), i);
+        }
+        this.positions = positions.build();
+      }
+    }
+
+    /** Returns the keys, which must be distinct. */
+    static <K> Keys<K> of(Iterable<? extends K> keys) {
+      return new Keys<K>(ImmutableList.<K>copyOf(keys));
+    }
+
+    /** Returns the enum type of all the keys, or null if they aren't constants of one enum. */
+    private static Class<?> enumTypeOf(ImmutableList<?> keys) {
+      Class<?> enumType = null;
+      for (Object key : keys) {
+        if (!(key instanceof Enum)) {
+          return null;
+        }
+        Class<?> keyEnumType = ((Enum<?>) key).getDeclaringClass();
+        if (enumType != null && enumType != keyEnumType) {
+          return null;
+        }
+        enumType = keyEnumType;
+      }
+      return enumType;
+    }
+
+    /** Returns the position of {@code key}, or -1 if it isn't one of the keys. */
+    int indexOf(Object key) {
+      if (positionsByOrdinal != null) {
+        return enumType.isInstance(key) ? positionsByOrdinal[((Enum<?>) key).ordinal()] : -1;
+      }
+      Integer position = positions.get(key);
+      return position != null ? position : -1;
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private final Keys<K> keys;
+  private final Object[] values;
+
+  /**
+   * @param values the values of the keys at the same positions. The array is owned by the map
+   *     from now on.
+   */
+  IndexedMap(Keys<K> keys, Object[] values) {
+    this.keys = keys;
+    this.values = values;
+  }
+
+  Keys<K> keys() {
+    return keys;
+  }
+
+  @Override public int size() {
+    return values.length;
+  }
+
+  @Override public boolean containsKey(Object key) {
+    return keys.indexOf(key) != -1;
+  }
+
+  @SuppressWarnings("unchecked") // values are only ever V
+  @Override public V get(Object key) {
+    int index = keys.indexOf(key);
+    return index != -1 ? (V) values[index] : null;
+  }
+
+  @Override public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override public int size() {
+        return values.length;
+      }
+
+      @Override public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<Entry<K, V>>() {
+          int next = 0;
+
+          public boolean hasNext() {
+            return next < values.length;
+          }
+
+          @SuppressWarnings("unchecked") // values are only ever V
+          public Entry<K, V> next() {
+            if (next >= values.length) {
+              throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = Maps.immutableEntry(keys.keys.get(next), (V) values[next]);
+            next++;
+            return entry;
+          }
+
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -58,7 +58,6 @@ import com.google.inject.util.Types;
 
 import java.lang.annotation.Annotation;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -437,7 +436,9 @@ public abstract class MapBinder<K, V> {
             checkConfiguration(false, sb.toString());
           }
 
-          providerMap = ImmutableMap.copyOf(providerMapMutable);
+          providerMap = new IndexedMap<K, Provider<V>>(
+              IndexedMap.Keys.of(providerMapMutable.keySet()),
+              providerMapMutable.values().toArray());
           mapBindings = ImmutableList.copyOf(bindingsMutable);
         }
 
@@ -450,7 +451,7 @@ public abstract class MapBinder<K, V> {
         }
       });
       
-      // The map this exposes is internally an ImmutableMap, so it's OK to massage
+      // The map this exposes is unmodifiable, so it's OK to massage
       // the guice Provider to javax Provider in the value (since Guice provider
       // implements javax Provider).
       @SuppressWarnings("unchecked")
@@ -460,15 +461,21 @@ public abstract class MapBinder<K, V> {
       final Provider<Map<K, Provider<V>>> mapProvider = binder.getProvider(providerMapKey);
       binder.bind(mapKey).toProvider(new RealMapWithExtensionProvider<Map<K, V>>(mapKey) {
         public Map<K, V> get() {
-          Map<K, V> map = new LinkedHashMap<K, V>();
-          for (Entry<K, Provider<V>> entry : mapProvider.get().entrySet()) {
+          Map<K, Provider<V>> providerMap = mapProvider.get();
+          Object[] values = new Object[providerMap.size()];
+          int i = 0;
+          for (Entry<K, Provider<V>> entry : providerMap.entrySet()) {
             V value = entry.getValue().get();
             K key = entry.getKey();
             checkConfiguration(value != null,
                 "Map injection failed due to null value for key \"%s\"", key);
-            map.put(key, value);
+            values[i++] = value;
           }
-          return Collections.unmodifiableMap(map);
+          // the provider map is indexed unless its binding was overridden
+          IndexedMap.Keys<K> keys = providerMap instanceof IndexedMap
+              ? ((IndexedMap<K, Provider<V>>) providerMap).keys()
+              : IndexedMap.Keys.of(providerMap.keySet());
+          return new IndexedMap<K, V>(keys, values);
         }
 
         public Set<Dependency<?>> getDependencies() {
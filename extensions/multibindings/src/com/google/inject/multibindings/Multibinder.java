@@ -24,6 +24,7 @@ import static com.google.inject.name.Names.named;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
@@ -34,13 +35,17 @@ import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
 import com.google.inject.binder.LinkedBindingBuilder;
 import com.google.inject.internal.Annotations;
 import com.google.inject.internal.Errors;
+import com.google.inject.internal.UniqueAnnotations;
 import com.google.inject.spi.BindingTargetVisitor;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.HasDependencies;
+import com.google.inject.spi.InstanceBinding;
 import com.google.inject.spi.Message;
 import com.google.inject.spi.ProviderInstanceBinding;
 import com.google.inject.spi.ProviderWithExtensionVisitor;
@@ -237,8 +242,15 @@ public abstract class Multibinder<T> {
 
     /* a binding for each element in the set. null until initialization, non-null afterwards */
     private ImmutableList<Binding<T>> bindings;
+    /* the providers of the bindings, in the same order. null until initialization */
+    private ImmutableList<Provider<T>> providers;
     private Set<Dependency<?>> dependencies;
 
+    /* whether every element is an instance or a singleton, so the set never changes */
+    private boolean constant;
+    /* the set, once it's been built if it's constant */
+    private volatile ImmutableSet<T> constantSet;
+
     /** whether duplicates are allowed. Possibly configured by a different instance */
     private boolean permitDuplicates;
 
@@ -254,6 +266,7 @@ public abstract class Multibinder<T> {
       checkConfiguration(!isInitialized(), "Multibinder was already initialized");
 
       binder.bind(setKey).toProvider(this);
+      binder.install(new ElementIndexModule());
     }
 
     @Override
@@ -275,18 +288,23 @@ public abstract class Multibinder<T> {
      */
     @Toolable @Inject void initialize(Injector injector) {
       List<Binding<T>> bindings = Lists.newArrayList();
+      List<Provider<T>> providers = Lists.newArrayList();
       List<Dependency<?>> dependencies = Lists.newArrayList();
-      for (Binding<?> entry : injector.findBindingsByType(elementType)) {
-        if (keyMatches(entry.getKey())) {
-          @SuppressWarnings("unchecked") // protected by findBindingsByType()
-          Binding<T> binding = (Binding<T>) entry;
-          bindings.add(binding);
-          dependencies.add(Dependency.get(binding.getKey()));
-        }
+      boolean constant = true;
+      for (Binding<?> entry : ElementIndex.getElements(injector, setName, elementType)) {
+        @SuppressWarnings("unchecked") // protected by the index's key
+        Binding<T> binding = (Binding<T>) entry;
+        bindings.add(binding);
+        providers.add(binding.getProvider());
+        dependencies.add(Dependency.get(binding.getKey()));
+        constant &= binding instanceof InstanceBinding || Scopes.isSingleton(binding);
       }
 
       this.bindings = ImmutableList.copyOf(bindings);
+      this.providers = ImmutableList.copyOf(providers);
       this.dependencies = ImmutableSet.copyOf(dependencies);
+      this.constant = constant;
+      this.constantSet = null;
       this.permitDuplicates = permitsDuplicates(injector);
       this.binder = null;
     }
@@ -309,16 +327,42 @@ public abstract class Multibinder<T> {
     public Set<T> get() {
       checkConfiguration(isInitialized(), "Multibinder is not initialized");
 
-      Map<T, Binding<T>> result = new LinkedHashMap<T, Binding<T>>();
-      for (Binding<T> binding : bindings) {
-        final T newValue = binding.getProvider().get();
+      ImmutableSet<T> set = constantSet;
+      if (set != null) {
+        return set;
+      }
+
+      Object[] values = new Object[providers.size()];
+      for (int i = 0; i < values.length; i++) {
+        T newValue = providers.get(i).get();
         checkConfiguration(newValue != null, "Set injection failed due to null element");
+        values[i] = newValue;
+      }
+      @SuppressWarnings("unchecked") // the values were provided by the bindings of T
+      ImmutableSet<T> result = (ImmutableSet<T>) ImmutableSet.copyOf(values);
+      if (!permitDuplicates && result.size() < values.length) {
+        throw newDuplicateValuesException(values);
+      }
+      if (constant) {
+        constantSet = result;
+      }
+      return result;
+    }
+
+    /** Returns the exception for the first value in {@code values} that's a duplicate. */
+    private ConfigurationException newDuplicateValuesException(Object[] values) {
+      Map<T, Binding<T>> result = new LinkedHashMap<T, Binding<T>>();
+      for (int i = 0; i < values.length; i++) {
+        @SuppressWarnings("unchecked") // the values were provided by the bindings of T
+        T newValue = (T) values[i];
+        Binding<T> binding = bindings.get(i);
         Binding<T> duplicateBinding = result.put(newValue, binding);
-        if (!permitDuplicates && duplicateBinding != null) {
-          throw newDuplicateValuesException(result, binding, newValue, duplicateBinding);
+        if (duplicateBinding != null) {
+          return Multibinder.newDuplicateValuesException(
+              result, binding, newValue, duplicateBinding);
         }
       }
-      return ImmutableSet.copyOf(result.keySet());
+      throw new AssertionError();
     }
 
     @SuppressWarnings("unchecked")
@@ -395,6 +439,88 @@ public abstract class Multibinder<T> {
     }
   }
 
+  /**
+   * Installs each injector's {@link ElementIndex}, once however many multibinders the injector
+   * has. Its key is unique to the module, so a child injector's index doesn't conflict with its
+   * parent's.
+   */
+  private static final class ElementIndexModule implements Module {
+    private final Key<ElementIndex> key = Key.get(ElementIndex.class, UniqueAnnotations.create());
+
+    public void configure(Binder binder) {
+      try {
+        binder.withSource(ElementIndex.class)
+            .bind(key)
+            .toConstructor(ElementIndex.class.getDeclaredConstructor(Injector.class))
+            .in(Scopes.SINGLETON);
+      } catch (NoSuchMethodException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof ElementIndexModule;
+    }
+
+    @Override public int hashCode() {
+      return ElementIndexModule.class.hashCode();
+    }
+  }
+
+  /**
+   * The element bindings of an injector's multibinders, so each multibinder initializes in time
+   * proportional to its own elements rather than to all the elements of its type. It's a singleton
+   * of the injector, built when its first multibinder is initialized, and kept as long as the
+   * injector.
+   */
+  static final class ElementIndex {
+    private final ImmutableListMultimap<ElementsKey, Binding<?>> elements;
+
+    ElementIndex(Injector injector) {
+      ImmutableListMultimap.Builder<ElementsKey, Binding<?>> elements
+          = ImmutableListMultimap.builder();
+      for (Binding<?> binding : injector.getBindings().values()) {
+        Key<?> key = binding.getKey();
+        if (key.getAnnotation() instanceof Element
+            && ((Element) key.getAnnotation()).type() == MULTIBINDER) {
+          String setName = ((Element) key.getAnnotation()).setName();
+          elements.put(new ElementsKey(setName, key.getTypeLiteral()), binding);
+        }
+      }
+      this.elements = elements.build();
+    }
+
+    /** Returns the element bindings of {@code injector}'s index, building it if it's the first. */
+    static List<Binding<?>> getElements(
+        Injector injector, String setName, TypeLiteral<?> elementType) {
+      // the index is bound at the injector's own level, even if its parent has one too
+      ElementIndex index = injector.findBindingsByType(TypeLiteral.get(ElementIndex.class))
+          .get(0).getProvider().get();
+      return index.elements.get(new ElementsKey(setName, elementType));
+    }
+  }
+
+  /** The name and element type of a multibinder, which its element bindings are indexed by. */
+  private static final class ElementsKey {
+    private final String setName;
+    private final TypeLiteral<?> elementType;
+
+    ElementsKey(String setName, TypeLiteral<?> elementType) {
+      this.setName = setName;
+      this.elementType = elementType;
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof ElementsKey
+          && ((ElementsKey) o).setName.equals(setName)
+          && ((ElementsKey) o).elementType.equals(elementType);
+    }
+
+    @Override public int hashCode() {
+      return setName.hashCode() * 31 + elementType.hashCode();
+    }
+  }
+
   /**
    * We install the permit duplicates configuration as its own binding, all by itself. This way,
    * if only one of a multibinder's users remember to call permitDuplicates(), they're still
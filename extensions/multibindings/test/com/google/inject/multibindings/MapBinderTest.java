@@ -27,6 +27,8 @@ import static com.google.inject.name.Names.named;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -685,6 +687,36 @@ public class MapBinderTest extends TestCase {
     assertEquals(Maps.immutableEntry("raphael", "red"), iterator.next());
   }
   
+  enum Command { START, STOP, PAUSE, RESUME }
+
+  public void testEnumKeysKeepBindOrder() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        MapBinder<Command, String> mapBinder
+            = MapBinder.newMapBinder(binder(), Command.class, String.class);
+        mapBinder.addBinding(Command.STOP).toInstance("stop");
+        mapBinder.addBinding(Command.START).toInstance("start");
+        mapBinder.addBinding(Command.RESUME).toInstance("resume");
+      }
+    });
+
+    Map<Command, String> map = injector.getInstance(new Key<Map<Command, String>>() {});
+    assertEquals(ImmutableList.of(Command.STOP, Command.START, Command.RESUME),
+        ImmutableList.copyOf(map.keySet()));
+    assertEquals("start", map.get(Command.START));
+    assertNull(map.get(Command.PAUSE));
+    assertNull(map.get("START"));
+    assertFalse(map.containsKey(Command.PAUSE));
+    assertEquals(ImmutableMap.of(Command.STOP, "stop", Command.START, "start",
+        Command.RESUME, "resume"), map);
+
+    Map<Command, Provider<String>> providers
+        = injector.getInstance(new Key<Map<Command, Provider<String>>>() {});
+    assertEquals(ImmutableList.copyOf(map.keySet()), ImmutableList.copyOf(providers.keySet()));
+    assertEquals("resume", providers.get(Command.RESUME).get());
+    assertNull(providers.get(Command.PAUSE));
+  }
+
   /**
    * With overrides, we should get the union of all map bindings.
    */
@@ -227,6 +227,54 @@ public class MultibinderTest extends TestCase {
     assertSetVisitor(deSetKey, stringType, setOf(module), BOTH, false, 1, instance("D"), instance("E"));
   }
 
+  public void testManySetsWithTheSameElementType() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        for (int i = 0; i < 50; i++) {
+          Multibinder<String> multibinder
+              = Multibinder.newSetBinder(binder(), String.class, Names.named("set" + i));
+          for (int j = 0; j < 5; j++) {
+            multibinder.addBinding().toInstance(i + "." + j);
+          }
+        }
+      }
+    });
+
+    for (int i = 0; i < 50; i++) {
+      Set<String> set = injector.getInstance(Key.get(setOfString, Names.named("set" + i)));
+      assertEquals(ImmutableList.of(i + ".0", i + ".1", i + ".2", i + ".3", i + ".4"),
+          ImmutableList.copyOf(set));
+    }
+  }
+
+  public void testElementIndexIsBoundOncePerInjector() {
+    Injector parent = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        Multibinder.newSetBinder(binder(), String.class, Names.named("a")).addBinding()
+            .toInstance("A");
+        Multibinder.newSetBinder(binder(), String.class, Names.named("b")).addBinding()
+            .toInstance("B");
+      }
+    });
+    Injector child = parent.createChildInjector(new AbstractModule() {
+      protected void configure() {
+        Multibinder.newSetBinder(binder(), String.class, Names.named("c")).addBinding()
+            .toInstance("C");
+      }
+    });
+    assertEquals(ImmutableSet.of("C"), child.getInstance(Key.get(setOfString, Names.named("c"))));
+
+    TypeLiteral<Multibinder.ElementIndex> indexType
+        = TypeLiteral.get(Multibinder.ElementIndex.class);
+    Binding<Multibinder.ElementIndex> parentIndex
+        = Iterables.getOnlyElement(parent.findBindingsByType(indexType));
+    Binding<Multibinder.ElementIndex> childIndex
+        = Iterables.getOnlyElement(child.findBindingsByType(indexType));
+    // the index is a singleton of each injector, so it's built once and kept by the injector
+    assertSame(parentIndex.getProvider().get(), parentIndex.getProvider().get());
+    assertNotSame(parentIndex.getProvider().get(), childIndex.getProvider().get());
+  }
+
   public void testMultibinderWithMultipleSetTypes() {
     Module module = new AbstractModule() {
       protected void configure() {
@@ -319,6 +367,43 @@ public class MultibinderTest extends TestCase {
     assertSetVisitor(Key.get(setOfInteger), intType, setOf(module), BOTH, false, 0, providerInstance(1));
   }
 
+  public void testSetOfInstancesAndSingletonsIsBuiltOnce() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        Multibinder<Integer> multibinder = Multibinder.newSetBinder(binder(), Integer.class);
+        multibinder.addBinding().toInstance(1);
+        multibinder.addBinding().toProvider(new Provider<Integer>() {
+          int nextValue = 2;
+          public Integer get() {
+            return nextValue++;
+          }
+        }).in(Scopes.SINGLETON);
+      }
+    });
+
+    Set<Integer> set = injector.getInstance(Key.get(setOfInteger));
+    assertEquals(setOf(1, 2), set);
+    assertSame(set, injector.getInstance(Key.get(setOfInteger)));
+  }
+
+  public void testSetWithUnscopedElementsIsRebuilt() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        Multibinder<Integer> multibinder = Multibinder.newSetBinder(binder(), Integer.class);
+        multibinder.addBinding().toInstance(1);
+        multibinder.addBinding().toProvider(new Provider<Integer>() {
+          int nextValue = 2;
+          public Integer get() {
+            return nextValue++;
+          }
+        });
+      }
+    });
+
+    assertEquals(setOf(1, 2), injector.getInstance(Key.get(setOfInteger)));
+    assertEquals(setOf(1, 3), injector.getInstance(Key.get(setOfInteger)));
+  }
+
   public void testMultibinderSetForbidsDuplicateElements() {
     Module module1 = new AbstractModule() {
       protected void configure() {
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.inject.servlet;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The statistics of the filter chain cache, which remembers the filters and the servlet that a
+ * path is dispatched to when it's enabled with {@code -Dguice_filter_chain_cache_size=N}. Inject
+ * this to poll the counts while the application runs; they're all zero if chains aren't cached.
+ *
+ * @since 4.0
+ */
+@Singleton
+public final class FilterChainCacheStats {
+  private final ManagedFilterPipeline pipeline;
+
+  @Inject FilterChainCacheStats(ManagedFilterPipeline pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  /** Returns true if the chains of dispatched paths are cached. */
+  public boolean isEnabled() {
+    return pipeline.getChainCacheStats() != null;
+  }
+
+  /** Returns the number of requests whose chain was cached. */
+  public long hitCount() {
+    CacheStats stats = pipeline.getChainCacheStats();
+    return stats != null ? stats.hitCount() : 0;
+  }
+
+  /** Returns the number of requests whose chain was resolved and then cached. */
+  public long missCount() {
+    CacheStats stats = pipeline.getChainCacheStats();
+    return stats != null ? stats.missCount() : 0;
+  }
+
+  /** Returns the number of chains dropped from the cache to make room for others. */
+  public long evictionCount() {
+    CacheStats stats = pipeline.getChainCacheStats();
+    return stats != null ? stats.evictionCount() : 0;
+  }
+
+  @Override public String toString() {
+    return Objects.toStringHelper(FilterChainCacheStats.class)
+        .add("hitCount", hitCount())
+        .add("missCount", missCount())
+        .add("evictionCount", evictionCount())
+        .toString();
+  }
+}
@@ -15,11 +15,13 @@
  */
 package com.google.inject.servlet;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
@@ -49,18 +51,24 @@ class FilterChainInvocation implements FilterChain {
       FilterChainInvocation.class.getName() + ".doFilter");
   
   private final FilterDefinition[] filterDefinitions;
+  private final ManagedFilterPipeline filterPipeline;
   private final FilterChain proceedingChain;
   private final ManagedServletPipeline servletPipeline;
 
   //state variable tracks current link in filterchain
   private int index = -1;
+  // the chain of the path of the request, which is usually the same for every filter
+  private ManagedFilterPipeline.Chain chain;
+  private String chainPath;
   // whether or not we've caught an exception & cleaned up stack traces
   private boolean cleanedStacks = false;
 
   public FilterChainInvocation(FilterDefinition[] filterDefinitions,
-      ManagedServletPipeline servletPipeline, FilterChain proceedingChain) {
+      ManagedFilterPipeline filterPipeline, ManagedServletPipeline servletPipeline,
+      FilterChain proceedingChain) {
 
     this.filterDefinitions = filterDefinitions;
+    this.filterPipeline = filterPipeline;
     this.servletPipeline = servletPipeline;
     this.proceedingChain = proceedingChain;
   }
@@ -72,7 +80,9 @@ class FilterChainInvocation implements FilterChain {
     HttpServletResponse response = (HttpServletResponse) servletResponse;
     HttpServletRequest originalRequest
         = (previous != null) ? previous.getOriginalRequest() : request;
-    GuiceFilter.localContext.set(new GuiceFilter.Context(originalRequest, request, response));
+    RequestScopeStore store = (previous != null) ? previous.getStore() : new RequestScopeStore();
+    GuiceFilter.localContext.set(
+        new GuiceFilter.Context(originalRequest, request, response, store));
     try {
       Filter filter = findNextFilter(request);
       if (filter != null) {
@@ -82,7 +92,9 @@ class FilterChainInvocation implements FilterChain {
         filter.doFilter(servletRequest, servletResponse, this);
       } else {
         //we've reached the end of the filterchain, let's try to dispatch to a servlet
-        final boolean serviced = servletPipeline.service(servletRequest, servletResponse);
+        String path = ServletUtils.getContextRelativePath(request);
+        int servlet = filterPipeline.getServlet(getChain(path), path);
+        final boolean serviced = servletPipeline.service(servlet, servletRequest, servletResponse);
 
         //dispatch to the normal filter chain only if one of our servlets did not match
         if (!serviced) {
@@ -110,8 +122,18 @@ class FilterChainInvocation implements FilterChain {
    * Returns the first applicable filter, or null if none apply.
    */
   private Filter findNextFilter(HttpServletRequest request) {
-    while (++index < filterDefinitions.length) {
-      Filter filter = filterDefinitions[index].getFilterIfMatching(request);
+    if (index + 1 >= filterDefinitions.length) {
+      index = filterDefinitions.length;
+      return null;
+    }
+    BitSet matches = getChain(ServletUtils.getContextRelativePath(request)).filters;
+    while (index < filterDefinitions.length) {
+      index = matches.nextSetBit(index + 1);
+      if (index == -1) {
+        index = filterDefinitions.length;
+        break;
+      }
+      Filter filter = filterDefinitions[index].getFilter();
       if (filter != null) {
         return filter;
       }
@@ -119,6 +141,18 @@ class FilterChainInvocation implements FilterChain {
     return null;
   }
   
+  /**
+   * Returns the chain of {@code path}. Filters may pass on a wrapped request with another path, so
+   * the chain is only reused while the path is the same.
+   */
+  private ManagedFilterPipeline.Chain getChain(String path) {
+    if (chain == null || !Objects.equal(path, chainPath)) {
+      chain = filterPipeline.getChain(path);
+      chainPath = path;
+    }
+    return chain;
+  }
+
   /**
    * Removes stacktrace elements related to AOP internal mechanics from the
    * throwable's stack trace and any causes it may have.
@@ -86,6 +86,10 @@ class FilterDefinition implements ProviderWithExtensionVisitor<FilterDefinition>
     }
   }
 
+  UriPatternMatcher getPatternMatcher() {
+    return patternMatcher;
+  }
+
   private boolean shouldFilter(String uri) {
     return uri != null && patternMatcher.matches(uri);
   }
@@ -160,7 +164,6 @@ class FilterDefinition implements ProviderWithExtensionVisitor<FilterDefinition>
     }
   }
 
-  //VisibleForTesting
   Filter getFilter() {
     return filter.get();
   }
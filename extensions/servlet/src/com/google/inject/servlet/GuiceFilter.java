@@ -126,8 +126,9 @@ public class GuiceFilter implements Filter {
     HttpServletResponse response = (HttpServletResponse) servletResponse;
     HttpServletRequest originalRequest
         = (previous != null) ? previous.getOriginalRequest() : request;
+    RequestScopeStore store = (previous != null) ? previous.getStore() : new RequestScopeStore();
     try {
-      new Context(originalRequest, request, response).call(new Callable<Void>() {
+      new Context(originalRequest, request, response, store).call(new Callable<Void>() {
         @Override public Void call() throws Exception {
           //dispatch across the servlet pipeline, ensuring web.xml's filterchain is honored
           filterPipeline.dispatch(servletRequest, servletResponse, filterChain);
@@ -159,7 +160,7 @@ public class GuiceFilter implements Filter {
     return servletContext.get();
   }
 
-  private static Context getContext(Key<?> key) {
+  static Context getContext(Key<?> key) {
     Context context = localContext.get();
     if (context == null) {
       throw new OutOfScopeException("Cannot access scoped [" + Errors.convert(key) 
@@ -174,12 +175,15 @@ public class GuiceFilter implements Filter {
     final HttpServletRequest originalRequest;
     final HttpServletRequest request;
     final HttpServletResponse response;
+    // shared by the contexts of the request's filters and servlets
+    final RequestScopeStore store;
 
     Context(HttpServletRequest originalRequest, HttpServletRequest request,
-        HttpServletResponse response) {
+        HttpServletResponse response, RequestScopeStore store) {
       this.originalRequest = originalRequest;
       this.request = request;
       this.response = response;
+      this.store = store;
     }
 
     HttpServletRequest getOriginalRequest() {
@@ -194,6 +198,10 @@ public class GuiceFilter implements Filter {
       return response;
     }
 
+    RequestScopeStore getStore() {
+      return store;
+    }
+
     // Synchronized to prevent two threads from using the same request
     // scope concurrently.
     synchronized <T> T call(Callable<T> callable) throws Exception {
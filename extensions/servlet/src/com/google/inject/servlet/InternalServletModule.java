@@ -93,6 +93,7 @@ final class InternalServletModule extends AbstractModule {
     bind(ManagedFilterPipeline.class);
     bind(ManagedServletPipeline.class);
     bind(FilterPipeline.class).to(ManagedFilterPipeline.class).asEagerSingleton();
+    bind(FilterChainCacheStats.class);
 
     bind(ServletContext.class).toProvider(BackwardsCompatibleServletContextProvider.class);
     bind(BackwardsCompatibleServletContextProvider.class);
@@ -15,6 +15,10 @@
  */
 package com.google.inject.servlet;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Binding;
@@ -25,8 +29,10 @@ import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Logger;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -42,11 +48,19 @@ import javax.servlet.http.HttpServletRequestWrapper;
  * Central routing/dispatch class handles lifecycle of managed filters, and delegates to the servlet
  * pipeline.
  *
+ * <p>With {@code -Dguice_filter_chain_cache_size=N}, the filters and the servlet that a path is
+ * dispatched to are remembered for up to N paths, so requests for the same path don't match it
+ * against the URI patterns again. The cache's statistics can be polled through
+ * {@link FilterChainCacheStats}, and are logged when the pipeline is destroyed.
+ *
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
 @Singleton
 class ManagedFilterPipeline implements FilterPipeline{
   private final FilterDefinition[] filterDefinitions;
+  private final UriPatternIndex patternIndex;
+  /** The chains of recently dispatched paths, or null if they aren't cached. */
+  private final LoadingCache<String, Chain> chains;
   private final ManagedServletPipeline servletPipeline;
   private final Provider<ServletContext> servletContext;
 
@@ -57,6 +71,7 @@ class ManagedFilterPipeline implements FilterPipeline{
   private volatile boolean initialized = false;
   private static final TypeLiteral<FilterDefinition> FILTER_DEFS =
       TypeLiteral.get(FilterDefinition.class);
+  private static final String CHAIN_CACHE_SIZE_PROPERTY = "guice_filter_chain_cache_size";
 
   @Inject
   public ManagedFilterPipeline(Injector injector, ManagedServletPipeline servletPipeline,
@@ -66,6 +81,8 @@ class ManagedFilterPipeline implements FilterPipeline{
     this.servletContext = servletContext;
 
     this.filterDefinitions = collectFilterDefinitions(injector);
+    this.patternIndex = indexPatterns(filterDefinitions);
+    this.chains = createChainCache(Integer.getInteger(CHAIN_CACHE_SIZE_PROPERTY, 0));
   }
 
   /**
@@ -85,6 +102,50 @@ class ManagedFilterPipeline implements FilterPipeline{
     return filterDefinitions.toArray(new FilterDefinition[filterDefinitions.size()]);
   }
 
+  private static UriPatternIndex indexPatterns(FilterDefinition[] filterDefinitions) {
+    List<UriPatternMatcher> matchers = Lists.newArrayList();
+    for (FilterDefinition filterDefinition : filterDefinitions) {
+      matchers.add(filterDefinition.getPatternMatcher());
+    }
+    return new UriPatternIndex(matchers);
+  }
+
+  private LoadingCache<String, Chain> createChainCache(int size) {
+    if (size <= 0) {
+      return null;
+    }
+    return CacheBuilder.newBuilder().maximumSize(size).recordStats().build(
+        new CacheLoader<String, Chain>() {
+          @Override public Chain load(String path) {
+            return new Chain(patternIndex.matches(path), servletPipeline.findServlet(path));
+          }
+        });
+  }
+
+  /**
+   * Returns the filters and the servlet that {@code path} is dispatched to. Unless the chain is
+   * cached, its servlet isn't resolved until {@link #getServlet} is called, since a filter may
+   * not pass the request on.
+   */
+  Chain getChain(String path) {
+    return chains != null && path != null
+        ? chains.getUnchecked(path)
+        : new Chain(patternIndex.matches(path), Chain.UNRESOLVED);
+  }
+
+  /**
+   * Returns the position of the servlet that {@code path} is dispatched to, or -1 if none is
+   * mapped to it. {@code chain} is the chain of {@code path}.
+   */
+  int getServlet(Chain chain, String path) {
+    return chain.servlet != Chain.UNRESOLVED ? chain.servlet : servletPipeline.findServlet(path);
+  }
+
+  /** Returns the statistics of the chain cache, or null if chains aren't cached. */
+  CacheStats getChainCacheStats() {
+    return chains != null ? chains.stats() : null;
+  }
+
   public synchronized void initPipeline(ServletContext servletContext)
       throws ServletException {
 
@@ -116,7 +177,7 @@ class ManagedFilterPipeline implements FilterPipeline{
     }
 
     //obtain the servlet pipeline to dispatch against
-    new FilterChainInvocation(filterDefinitions, servletPipeline, proceedingFilterChain)
+    new FilterChainInvocation(filterDefinitions, this, servletPipeline, proceedingFilterChain)
         .doFilter(withDispatcher(request, servletPipeline), response);
 
   }
@@ -157,6 +218,11 @@ class ManagedFilterPipeline implements FilterPipeline{
   }
 
   public void destroyPipeline() {
+    if (chains != null) {
+      Logger.getLogger(ManagedFilterPipeline.class.getName())
+          .info("Filter chain cache of " + chains.size() + " paths: " + chains.stats());
+    }
+
     //destroy servlets first
     servletPipeline.destroy();
 
@@ -166,4 +232,22 @@ class ManagedFilterPipeline implements FilterPipeline{
       filterDefinition.destroy(destroyedSoFar);
     }
   }
+
+  /**
+   * The filters and the servlet that a path is dispatched to, by their positions in the pipelines.
+   * Shared by the requests for the path, so it must not be modified.
+   */
+  static final class Chain {
+    /** The servlet of a chain that isn't cached, which is only resolved if it's needed. */
+    static final int UNRESOLVED = -2;
+
+    final BitSet filters;
+    /** -1 if no servlet is mapped to the path, or {@link #UNRESOLVED}. */
+    final int servlet;
+
+    Chain(BitSet filters, int servlet) {
+      this.filters = filters;
+      this.servlet = servlet;
+    }
+  }
 }
@@ -46,12 +46,14 @@ import javax.servlet.http.HttpServletRequestWrapper;
 @Singleton
 class ManagedServletPipeline {
   private final ServletDefinition[] servletDefinitions;
+  private final UriPatternIndex patternIndex;
   private static final TypeLiteral<ServletDefinition> SERVLET_DEFS =
       TypeLiteral.get(ServletDefinition.class);
 
   @Inject
   public ManagedServletPipeline(Injector injector) {
     this.servletDefinitions = collectServletDefinitions(injector);
+    this.patternIndex = indexPatterns(servletDefinitions);
   }
 
   boolean hasServletsMapped() {
@@ -75,6 +77,14 @@ class ManagedServletPipeline {
     return servletDefinitions.toArray(new ServletDefinition[servletDefinitions.size()]);
   }
 
+  private static UriPatternIndex indexPatterns(ServletDefinition[] servletDefinitions) {
+    List<UriPatternMatcher> matchers = Lists.newArrayList();
+    for (ServletDefinition servletDefinition : servletDefinitions) {
+      matchers.add(servletDefinition.getPatternMatcher());
+    }
+    return new UriPatternIndex(matchers);
+  }
+
   public void init(ServletContext servletContext, Injector injector) throws ServletException {
     Set<HttpServlet> initializedSoFar = Sets.newIdentityHashSet();
 
@@ -85,16 +95,30 @@ class ManagedServletPipeline {
 
   public boolean service(ServletRequest request, ServletResponse response)
       throws IOException, ServletException {
+    String path = ServletUtils.getContextRelativePath((HttpServletRequest) request);
+    return service(findServlet(path), request, response);
+  }
 
-    //stop at the first matching servlet and service
-    for (ServletDefinition servletDefinition : servletDefinitions) {
-      if (servletDefinition.service(request, response)) {
-        return true;
-      }
-    }
+  /**
+   * Returns the position of the first servlet mapped to {@code path}, or -1 if there's none. Pass
+   * it to {@link #service(int, ServletRequest, ServletResponse)}.
+   */
+  int findServlet(String path) {
+    return patternIndex.firstMatch(path);
+  }
+
+  /** Services the request with the servlet at {@code match}, if there's one. */
+  boolean service(int match, ServletRequest request, ServletResponse response)
+      throws IOException, ServletException {
 
     //there was no match...
-    return false;
+    if (match == -1) {
+      return false;
+    }
+
+    //stop at the first matching servlet and service
+    servletDefinitions[match].doService(request, response);
+    return true;
   }
 
   public void destroy() {
@@ -114,50 +138,51 @@ class ManagedServletPipeline {
     // TODO(dhanji): check servlet spec to see if the following is legal or not.
     // Need to strip query string if requested...
 
-    for (final ServletDefinition servletDefinition : servletDefinitions) {
-      if (servletDefinition.shouldServe(path)) {
-        return new RequestDispatcher() {
-          public void forward(ServletRequest servletRequest, ServletResponse servletResponse)
-              throws ServletException, IOException {
-            Preconditions.checkState(!servletResponse.isCommitted(),
-                "Response has been committed--you can only call forward before"
-                + " committing the response (hint: don't flush buffers)");
-
-            // clear buffer before forwarding
-            servletResponse.resetBuffer();
-
-            ServletRequest requestToProcess;
-            if (servletRequest instanceof HttpServletRequest) {
-               requestToProcess = new RequestDispatcherRequestWrapper(servletRequest, newRequestUri);
-            } else {
-              // This should never happen, but instead of throwing an exception
-              // we will allow a happy case pass thru for maximum tolerance to
-              // legacy (and internal) code.
-              requestToProcess = servletRequest;
-            }
-
-            // now dispatch to the servlet
-            doServiceImpl(servletDefinition, requestToProcess, servletResponse);
-          }
-
-          public void include(ServletRequest servletRequest, ServletResponse servletResponse)
-              throws ServletException, IOException {
-            // route to the target servlet
-            doServiceImpl(servletDefinition, servletRequest, servletResponse);
+    int match = findServlet(path);
+    if (match != -1) {
+      final ServletDefinition servletDefinition = servletDefinitions[match];
+      return new RequestDispatcher() {
+        public void forward(ServletRequest servletRequest, ServletResponse servletResponse)
+            throws ServletException, IOException {
+          Preconditions.checkState(!servletResponse.isCommitted(),
+              "Response has been committed--you can only call forward before"
+              + " committing the response (hint: don't flush buffers)");
+
+          // clear buffer before forwarding
+          servletResponse.resetBuffer();
+
+          ServletRequest requestToProcess;
+          if (servletRequest instanceof HttpServletRequest) {
+             requestToProcess = new RequestDispatcherRequestWrapper(servletRequest, newRequestUri);
+          } else {
+            // This should never happen, but instead of throwing an exception
+            // we will allow a happy case pass thru for maximum tolerance to
+            // legacy (and internal) code.
+            requestToProcess = servletRequest;
           }
 
-          private void doServiceImpl(ServletDefinition servletDefinition, ServletRequest servletRequest,
-              ServletResponse servletResponse) throws ServletException, IOException {
-            servletRequest.setAttribute(REQUEST_DISPATCHER_REQUEST, Boolean.TRUE);
-
-            try {
-              servletDefinition.doService(servletRequest, servletResponse);
-            } finally {
-              servletRequest.removeAttribute(REQUEST_DISPATCHER_REQUEST);
-            }
+          // now dispatch to the servlet
+          doServiceImpl(servletDefinition, requestToProcess, servletResponse);
+        }
+
+        public void include(ServletRequest servletRequest, ServletResponse servletResponse)
+            throws ServletException, IOException {
+          // route to the target servlet
+          doServiceImpl(servletDefinition, servletRequest, servletResponse);
+        }
+
+        private void doServiceImpl(ServletDefinition servletDefinition,
+            ServletRequest servletRequest, ServletResponse servletResponse)
+            throws ServletException, IOException {
+          servletRequest.setAttribute(REQUEST_DISPATCHER_REQUEST, Boolean.TRUE);
+
+          try {
+            servletDefinition.doService(servletRequest, servletResponse);
+          } finally {
+            servletRequest.removeAttribute(REQUEST_DISPATCHER_REQUEST);
           }
-        };
-      }
+        }
+      };
     }
 
     //otherwise, can't process
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Key;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The request-scoped objects of an HTTP request. Each key is given an {@link Index} when it's
+ * scoped, as its injector is created, and its object is stored at that index, so looking up an
+ * object is an array access instead of a request attribute lookup by {@code key.toString()}.
+ *
+ * <p>Keys are only held by their indexes, which are held by the scoped providers and by the stores
+ * that have objects for them, so the classes of an injector that's gone aren't kept here. Once no
+ * provider or store uses an index, it's given to the next key that's scoped.
+ *
+ * <p>A store is only used by the request's thread until the request is {@link
+ * ServletScopes#transferRequest transferred} to another thread, so it's only locked after that.
+ */
+final class RequestScopeStore {
+
+  /**
+   * The indexes of the keys that have them, which are the same in all injectors, like the attribute
+   * names. Guarded by itself.
+   */
+  private static final Map<Key<?>, IndexReference> indexes =
+      new WeakHashMap<Key<?>, IndexReference>();
+  /** The indexes that have been collected, which can be given to other keys. */
+  private static final ReferenceQueue<Index> collectedIndexes = new ReferenceQueue<Index>();
+  private static final List<Integer> freeIndexes = Lists.newArrayList();
+  private static volatile int nextIndex;
+
+  /** The index of a key. It holds the key so that the key's entry stays while it's in use. */
+  static final class Index {
+    final Key<?> key;
+    final int value;
+
+    private Index(Key<?> key, int value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /** Returns the index of {@code key}, giving it one if it doesn't have one in use. */
+  static Index indexOf(Key<?> key) {
+    synchronized (indexes) {
+      IndexReference reference = indexes.get(key);
+      Index index = reference != null ? reference.get() : null;
+      if (index == null) {
+        for (Reference<?> collected; (collected = collectedIndexes.poll()) != null; ) {
+          freeIndexes.add(((IndexReference) collected).value);
+        }
+        int value = freeIndexes.isEmpty()
+            ? nextIndex++
+            : freeIndexes.remove(freeIndexes.size() - 1);
+        index = new Index(key, value);
+        indexes.put(key, new IndexReference(index));
+      }
+      return index;
+    }
+  }
+
+  /** A weak reference to an index that remembers its value for when it's collected. */
+  private static final class IndexReference extends WeakReference<Index> {
+    final int value;
+
+    IndexReference(Index index) {
+      super(index, collectedIndexes);
+      this.value = index.value;
+    }
+  }
+
+  /**
+   * The objects by index, null until the first object is put. An object is null if there's none
+   * yet, {@code NullObject} for null.
+   */
+  private Object[] values;
+  /** The indexes of the objects, which keeps them from being given to other keys. */
+  private Index[] valueIndexes;
+  private volatile boolean shared;
+
+  /** Returns the object of the key with {@code index}, or null if there's none yet. */
+  Object get(Index index) {
+    int i = index.value;
+    return values != null && i < values.length ? values[i] : null;
+  }
+
+  void put(Index index, Object value) {
+    int i = index.value;
+    if (values == null) {
+      values = new Object[Math.max(i + 1, nextIndex)];
+      valueIndexes = new Index[values.length];
+    } else if (i >= values.length) {
+      values = Arrays.copyOf(values, Math.max(i + 1, nextIndex));
+      valueIndexes = Arrays.copyOf(valueIndexes, values.length);
+    }
+    values[i] = value;
+    valueIndexes[i] = index;
+  }
+
+  /** Returns true if other threads may use this store, so it must be locked to be used. */
+  boolean isShared() {
+    return shared;
+  }
+
+  /** Marks this store as used by other threads than the one that created it. */
+  void share() {
+    shared = true;
+  }
+}
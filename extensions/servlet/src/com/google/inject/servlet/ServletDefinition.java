@@ -94,6 +94,10 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
     }
   }
 
+  UriPatternMatcher getPatternMatcher() {
+    return patternMatcher;
+  }
+
   boolean shouldServe(String uri) {
     return uri != null && patternMatcher.matches(uri);
   }
@@ -274,7 +278,9 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
     GuiceFilter.Context previous = GuiceFilter.localContext.get();
     HttpServletRequest originalRequest
         = (previous != null) ? previous.getOriginalRequest() : request;
-    GuiceFilter.localContext.set(new GuiceFilter.Context(originalRequest, request, response));
+    RequestScopeStore store = (previous != null) ? previous.getStore() : new RequestScopeStore();
+    GuiceFilter.localContext.set(
+        new GuiceFilter.Context(originalRequest, request, response, store));
     try {
       httpServlet.get().service(request, response);
     } finally {
@@ -18,6 +18,8 @@ package com.google.inject.servlet;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Maps.EntryTransformer;
 import com.google.inject.Binding;
@@ -25,8 +27,10 @@ import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.OutOfScopeException;
 import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
 import com.google.inject.Scope;
 import com.google.inject.Scopes;
+import com.google.inject.internal.CycleDetectingLock;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -61,11 +65,22 @@ public class ServletScopes {
   /** A sentinel attribute value representing null. */
   enum NullObject { INSTANCE }
 
+  /**
+   * Set to true to also store HTTP request-scoped objects as request attributes named by their
+   * keys, like before they had their own store. Read when keys are scoped.
+   */
+  private static final String REQUEST_ATTRIBUTES_PROPERTY = "guice_request_scope_attributes";
+
   /**
    * HTTP servlet request scope.
    */
   public static final Scope REQUEST = new Scope() {
     public <T> Provider<T> scope(final Key<T> key, final Provider<T> creator) {
+      // Don't store these keys, since they are handled by GuiceFilter itself.
+      final boolean handledByFilter = REQUEST_CONTEXT_KEYS.contains(key);
+      final RequestScopeStore.Index index = RequestScopeStore.indexOf(key);
+      final String attributeName
+          = Boolean.getBoolean(REQUEST_ATTRIBUTES_PROPERTY) ? key.toString() : null;
       return new Provider<T>() {
         public T get() {
           // Check if the alternate request scope should be used, if no HTTP
@@ -98,33 +113,56 @@ public class ServletScopes {
               // exception is thrown.
           }
 
-          // Always synchronize and get/set attributes on the underlying request
-          // object since Filters may wrap the request and change the value of
-          // {@code GuiceFilter.getRequest()}.
-          //
           // This _correctly_ throws up if the thread is out of scope.
-          HttpServletRequest request = GuiceFilter.getOriginalRequest(key);
-          if (REQUEST_CONTEXT_KEYS.contains(key)) {
-            // Don't store these keys as attributes, since they are handled by
-            // GuiceFilter itself.
+          GuiceFilter.Context context = GuiceFilter.getContext(key);
+          if (handledByFilter) {
             return creator.get();
           }
-          String name = key.toString();
-          synchronized (request) {
-            Object obj = request.getAttribute(name);
-            if (NullObject.INSTANCE == obj) {
-              return null;
+
+          // Objects are kept in the request's store, which is only locked once
+          // the request has been transferred to other threads. When they are
+          // mirrored in request attributes, those are synchronized and get/set
+          // on the underlying request object since Filters may wrap the request
+          // and change the value of {@code GuiceFilter.getRequest()}.
+          RequestScopeStore store = context.getStore();
+          if (attributeName != null) {
+            synchronized (context.getOriginalRequest()) {
+              return get(store, context.getOriginalRequest());
+            }
+          } else if (store.isShared()) {
+            synchronized (store) {
+              return get(store, null);
+            }
+          } else {
+            return get(store, null);
+          }
+        }
+
+        /** {@code request} is the request to mirror objects in, or null if they aren't. */
+        private T get(RequestScopeStore store, HttpServletRequest request) {
+          Object obj = store.get(index);
+          if (obj == null && request != null) {
+            obj = request.getAttribute(attributeName);
+            if (obj != null) {
+              store.put(index, obj);
             }
-            @SuppressWarnings("unchecked")
-            T t = (T) obj;
-            if (t == null) {
-              t = creator.get();
-              if (!Scopes.isCircularProxy(t)) {
-                request.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+          }
+          if (NullObject.INSTANCE == obj) {
+            return null;
+          }
+          @SuppressWarnings("unchecked")
+          T t = (T) obj;
+          if (t == null) {
+            t = creator.get();
+            if (!Scopes.isCircularProxy(t)) {
+              Object value = (t != null) ? t : NullObject.INSTANCE;
+              store.put(index, value);
+              if (request != null) {
+                request.setAttribute(attributeName, value);
               }
             }
-            return t;
           }
+          return t;
         }
 
         @Override
@@ -149,21 +187,32 @@ public class ServletScopes {
       return new Provider<T>() {
         public T get() {
           HttpSession session = GuiceFilter.getRequest(key).getSession();
-          synchronized (session) {
-            Object obj = session.getAttribute(name);
-            if (NullObject.INSTANCE == obj) {
-              return null;
-            }
-            @SuppressWarnings("unchecked")
-            T t = (T) obj;
-            if (t == null) {
-              t = creator.get();
-              if (!Scopes.isCircularProxy(t)) {
-                session.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+          // Containers make session attributes safe to use from concurrent
+          // requests, so only creating the object is locked, and only against
+          // other requests creating the same object in the same session.
+          Object obj = session.getAttribute(name);
+          if (obj == null) {
+            SessionLock lock = SessionLock.of(session, name);
+            lock.lock(key);
+            try {
+              obj = session.getAttribute(name);
+              if (obj == null) {
+                T t = creator.get();
+                if (!Scopes.isCircularProxy(t)) {
+                  session.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+                }
+                return t;
               }
+            } finally {
+              lock.unlock();
             }
-            return t;
           }
+          if (NullObject.INSTANCE == obj) {
+            return null;
+          }
+          @SuppressWarnings("unchecked")
+          T t = (T) obj;
+          return t;
         }
         @Override
         public String toString() {
@@ -219,16 +268,20 @@ public class ServletScopes {
     final ContinuingHttpServletRequest continuingRequest =
         new ContinuingHttpServletRequest(
             GuiceFilter.getRequest(Key.get(HttpServletRequest.class)));
+    // The callable may be called by several threads at once.
+    final RequestScopeStore store = new RequestScopeStore();
+    store.share();
     for (Map.Entry<Key<?>, Object> entry : seedMap.entrySet()) {
       Object value = validateAndCanonicalizeValue(entry.getKey(), entry.getValue());
       continuingRequest.setAttribute(entry.getKey().toString(), value);
+      store.put(RequestScopeStore.indexOf(entry.getKey()), value);
     }
 
     return new Callable<T>() {
       public T call() throws Exception {
         checkScopingState(null == GuiceFilter.localContext.get(),
             "Cannot continue request in the same thread as a HTTP request!");
-        return new GuiceFilter.Context(continuingRequest, continuingRequest, null)
+        return new GuiceFilter.Context(continuingRequest, continuingRequest, null, store)
             .call(callable);
       }
     };
@@ -267,6 +320,7 @@ public class ServletScopes {
     if (context == null) {
       throw new OutOfScopeException("Not in a request scope");
     }
+    context.getStore().share();
     return new Callable<T>() {
       public T call() throws Exception {
         return context.call(callable);
@@ -375,6 +429,66 @@ public class ServletScopes {
     }
   }
 
+  /**
+   * Locks the creation of a session-scoped object. Equal locks are interned while they're in use,
+   * so threads creating the same object in the same session lock the same instance.
+   *
+   * <p>Objects of a session may depend on each other, so two requests can each be creating an
+   * object that the other needs. Instead of waiting for each other forever, the request that
+   * closes the cycle fails, like singletons do.
+   */
+  private static final class SessionLock {
+    private static final Interner<SessionLock> locks = Interners.newWeakInterner();
+
+    static SessionLock of(HttpSession session, String name) {
+      return locks.intern(new SessionLock(session, name));
+    }
+
+    private final HttpSession session;
+    private final String name;
+    private final CycleDetectingLock<String> lock;
+
+    private SessionLock(HttpSession session, String name) {
+      this.session = session;
+      this.name = name;
+      this.lock = new CycleDetectingLock<String>(name);
+    }
+
+    /**
+     * Locks the creation of the object of {@code key}.
+     *
+     * @throws ProvisionException if waiting would deadlock with other requests of the session
+     */
+    void lock(Key<?> key) {
+      Map<Thread, Object> cycle = lock.lockOrDetectCycle();
+      if (!cycle.isEmpty()) {
+        StringBuilder message = new StringBuilder()
+            .append("Unable to create the session-scoped object for ").append(key)
+            .append(" because it would deadlock. Each thread is waiting for an object that the")
+            .append(" next thread is creating:");
+        for (Map.Entry<Thread, Object> entry : cycle.entrySet()) {
+          message.append("\n  ").append(entry.getKey().getName())
+              .append(" is waiting for ").append(entry.getValue());
+        }
+        throw new ProvisionException(message.toString());
+      }
+    }
+
+    void unlock() {
+      lock.unlock();
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof SessionLock
+          && ((SessionLock) o).session == session
+          && ((SessionLock) o).name.equals(name);
+    }
+
+    @Override public int hashCode() {
+      return System.identityHashCode(session) * 31 + name.hashCode();
+    }
+  }
+
   private static void checkScopingState(boolean condition, String msg) {
     if (!condition) {
       throw new ScopingException(msg);
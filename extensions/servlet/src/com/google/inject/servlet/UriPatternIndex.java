@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.common.collect.Maps;
+import com.google.inject.servlet.UriPatternType.RegexUriPatternMatcher;
+import com.google.inject.servlet.UriPatternType.ServletStyleUriPatternMatcher;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds which of the URI patterns of a pipeline match a path without trying each of them in turn.
+ * Servlet-style patterns are looked up by the whole path ({@code /index.html}), in a trie of
+ * prefixes ({@code /public/*}) and in a trie of suffixes ({@code *.html}). Other patterns, such as
+ * regular expressions, are tried one by one.
+ *
+ * <p>Regular expressions that can be combined are also joined in one alternation, {@code
+ * (p1)|(p2)|...}, which tries them in a single match. Its leftmost matching alternative is the
+ * first of them that matches, and when it doesn't match, none of them does. Expressions with
+ * inline flags, back references or quotes could change meaning in an alternation, so they are
+ * only tried on their own.
+ *
+ * <p>Patterns are identified by their position in the pipeline, and the first match is the one
+ * with the lowest position, so dispatching through the index picks the same filters and servlets
+ * in the same order as trying every pattern would.
+ */
+final class UriPatternIndex {
+  private final int size;
+  private final Map<String, int[]> literals = Maps.newHashMap();
+  private final Trie startsWith = new Trie(false);
+  private final Trie endsWith = new Trie(true);
+  /** The patterns that aren't servlet-style, and their positions in increasing order. */
+  private final UriPatternMatcher[] others;
+  private final int[] otherPositions;
+  /** The regular expressions of others joined in one, or null if fewer than two can be joined. */
+  private final Pattern alternation;
+  /** For each of the others, its alternative in the alternation, or -1. */
+  private final int[] alternativeOf;
+  /** For each alternative, its position in others and the group that captures it. */
+  private final int[] alternatives;
+  private final int[] alternativeGroups;
+
+  UriPatternIndex(List<UriPatternMatcher> matchers) {
+    this.size = matchers.size();
+    int[] otherPositions = new int[0];
+    for (int position = 0; position < matchers.size(); position++) {
+      UriPatternMatcher matcher = matchers.get(position);
+      if (!(matcher instanceof ServletStyleUriPatternMatcher)) {
+        otherPositions = append(otherPositions, position);
+        continue;
+      }
+      ServletStyleUriPatternMatcher servletStyle = (ServletStyleUriPatternMatcher) matcher;
+      String pattern = servletStyle.getPatternWithoutWildcard();
+      switch (servletStyle.getKind()) {
+        case PREFIX:
+          endsWith.add(pattern, position);
+          break;
+        case SUFFIX:
+          startsWith.add(pattern, position);
+          break;
+        default:
+          int[] positions = literals.get(pattern);
+          literals.put(pattern, append(positions != null ? positions : new int[0], position));
+      }
+    }
+    this.otherPositions = otherPositions;
+    this.others = new UriPatternMatcher[otherPositions.length];
+    for (int i = 0; i < otherPositions.length; i++) {
+      others[i] = matchers.get(otherPositions[i]);
+    }
+
+    this.alternativeOf = new int[others.length];
+    Arrays.fill(alternativeOf, -1);
+    int[] alternatives = new int[0];
+    int[] alternativeGroups = new int[0];
+    StringBuilder alternation = new StringBuilder();
+    int group = 1;
+    for (int i = 0; i < others.length; i++) {
+      if (!(others[i] instanceof RegexUriPatternMatcher)) {
+        continue;
+      }
+      Pattern pattern = ((RegexUriPatternMatcher) others[i]).getPattern();
+      if (pattern.flags() != 0 || !canJoin(pattern.pattern())) {
+        continue;
+      }
+      alternation.append(alternatives.length == 0 ? "(" : "|(")
+          .append(pattern.pattern())
+          .append(')');
+      alternativeOf[i] = alternatives.length;
+      alternatives = append(alternatives, i);
+      alternativeGroups = append(alternativeGroups, group);
+      group += pattern.matcher("").groupCount() + 1;
+    }
+    this.alternatives = alternatives;
+    this.alternativeGroups = alternativeGroups;
+    this.alternation = alternatives.length > 1 ? join(alternation.toString()) : null;
+    if (this.alternation == null) {
+      Arrays.fill(alternativeOf, -1);
+    }
+  }
+
+  /**
+   * Returns true if {@code regex} means the same inside an alternation: it has no inline flags,
+   * which could apply to the expressions after it, no back references, which count groups from the
+   * start, and no quotes, which could swallow the rest.
+   */
+  private static boolean canJoin(String regex) {
+    for (int i = 0; i < regex.length() - 1; i++) {
+      char c = regex.charAt(i);
+      char next = regex.charAt(i + 1);
+      if (c == '\\') {
+        if (Character.isDigit(next) || next == 'k' || next == 'Q') {
+          return false;
+        }
+        i++; // skip the escaped character
+      } else if (c == '(' && next == '?') {
+        String construct = regex.substring(i + 2);
+        if (!construct.startsWith(":") && !construct.startsWith("=") && !construct.startsWith("!")
+            && !construct.startsWith(">") && !construct.startsWith("<=")
+            && !construct.startsWith("<!")) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Returns the alternation, or null if it's invalid and the expressions must be tried alone. */
+  private static Pattern join(String alternation) {
+    try {
+      return Pattern.compile(alternation);
+    } catch (PatternSyntaxException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the first alternative of the alternation that matches {@code uri}, or -1 if none does
+   * or there's no alternation.
+   */
+  private int matchingAlternative(String uri) {
+    if (alternation == null) {
+      return -1;
+    }
+    Matcher matcher = alternation.matcher(uri);
+    if (!matcher.matches()) {
+      return -1;
+    }
+    for (int alternative = 0; alternative < alternatives.length; alternative++) {
+      if (matcher.start(alternativeGroups[alternative]) != -1) {
+        return alternative;
+      }
+    }
+    throw new AssertionError("No alternative of " + alternation + " matched " + uri);
+  }
+
+  /**
+   * Returns the position of the first pattern that matches {@code path}, or -1 if none does or
+   * the path is null.
+   */
+  int firstMatch(String path) {
+    if (path == null) {
+      return -1;
+    }
+    String uri = UriPatternType.getUri(path);
+    int first = size;
+    int[] positions = literals.get(uri);
+    if (positions != null) {
+      first = positions[0];
+    }
+    first = startsWith.firstMatch(uri, first);
+    first = endsWith.firstMatch(uri, first);
+    if (alternation != null && otherPositions[alternatives[0]] < first) {
+      int alternative = matchingAlternative(uri);
+      if (alternative != -1) {
+        first = Math.min(first, otherPositions[alternatives[alternative]]);
+      }
+    }
+    for (int i = 0; i < otherPositions.length && otherPositions[i] < first; i++) {
+      if (alternativeOf[i] == -1 && others[i].matches(path)) {
+        return otherPositions[i];
+      }
+    }
+    return first < size ? first : -1;
+  }
+
+  /**
+   * Returns the positions of all the patterns that match {@code path}. The set is empty if the
+   * path is null.
+   */
+  BitSet matches(String path) {
+    BitSet matches = new BitSet(size);
+    if (path == null) {
+      return matches;
+    }
+    String uri = UriPatternType.getUri(path);
+    int[] positions = literals.get(uri);
+    if (positions != null) {
+      for (int position : positions) {
+        matches.set(position);
+      }
+    }
+    startsWith.addMatches(uri, matches);
+    endsWith.addMatches(uri, matches);
+    // the alternatives before the one that matched don't match, and if none matched, none do
+    int alternative = matchingAlternative(uri);
+    for (int i = 0; i < otherPositions.length; i++) {
+      boolean match;
+      if (alternativeOf[i] == -1) {
+        match = others[i].matches(path);
+      } else if (alternative == -1 || alternativeOf[i] < alternative) {
+        match = false;
+      } else {
+        match = alternativeOf[i] == alternative || others[i].matches(path);
+      }
+      if (match) {
+        matches.set(otherPositions[i]);
+      }
+    }
+    return matches;
+  }
+
+  private static int[] append(int[] positions, int position) {
+    int[] appended = Arrays.copyOf(positions, positions.length + 1);
+    appended[positions.length] = position;
+    return appended;
+  }
+
+  /**
+   * The patterns a path starts with or, if the trie is reversed, ends with. Each node is a
+   * character of the patterns, and holds the positions of the patterns that end there.
+   */
+  private static final class Trie {
+    private final boolean reversed;
+    private final Node root = new Node();
+
+    Trie(boolean reversed) {
+      this.reversed = reversed;
+    }
+
+    void add(String pattern, int position) {
+      Node node = root;
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = charAt(pattern, i);
+        Node child = node.children.get(c);
+        if (child == null) {
+          child = new Node();
+          node.children.put(c, child);
+        }
+        node = child;
+      }
+      node.positions = append(node.positions, position);
+    }
+
+    /** Returns the lowest of {@code first} and the positions of the patterns that match. */
+    int firstMatch(String uri, int first) {
+      Node node = root;
+      for (int i = 0; node != null; i++) {
+        // positions are added in increasing order, so the first is the lowest
+        if (node.positions.length > 0 && node.positions[0] < first) {
+          first = node.positions[0];
+        }
+        node = i < uri.length() ? node.children.get(charAt(uri, i)) : null;
+      }
+      return first;
+    }
+
+    void addMatches(String uri, BitSet matches) {
+      Node node = root;
+      for (int i = 0; node != null; i++) {
+        for (int position : node.positions) {
+          matches.set(position);
+        }
+        node = i < uri.length() ? node.children.get(charAt(uri, i)) : null;
+      }
+    }
+
+    private char charAt(String s, int i) {
+      return reversed ? s.charAt(s.length() - 1 - i) : s.charAt(i);
+    }
+  }
+
+  private static final class Node {
+    final Map<Character, Node> children = Maps.newHashMap();
+    int[] positions = new int[0];
+  }
+}
@@ -37,7 +37,7 @@ public enum UriPatternType {
     }
   }
 
-  private static String getUri(String uri) {
+  static String getUri(String uri) {
     // Strip out the query, if it existed in the URI.  See issue 379.
     int queryIdx = uri.indexOf('?');
     if (queryIdx != -1) {
@@ -51,11 +51,12 @@ public enum UriPatternType {
    *
    * @author dhanji@gmail.com (Dhanji R. Prasanna)
    */
-  private static class ServletStyleUriPatternMatcher implements UriPatternMatcher {
+  static class ServletStyleUriPatternMatcher implements UriPatternMatcher {
     private final String pattern;
     private final Kind patternKind;
 
-    private static enum Kind { PREFIX, SUFFIX, LITERAL, }
+    /** Whether the wildcard is the prefix, the suffix or absent. */
+    static enum Kind { PREFIX, SUFFIX, LITERAL, }
 
     public ServletStyleUriPatternMatcher(String pattern) {
       if (pattern.startsWith("*")) {
@@ -86,6 +87,15 @@ public enum UriPatternType {
       return pattern.equals(uri);
     }
 
+    /** Returns the pattern without its wildcard. */
+    String getPatternWithoutWildcard() {
+      return pattern;
+    }
+
+    Kind getKind() {
+      return patternKind;
+    }
+
     public String extractPath(String path) {
       if (patternKind == Kind.PREFIX) {
         return null;
@@ -114,13 +124,17 @@ public enum UriPatternType {
    *
    * @author dhanji@gmail.com (Dhanji R. Prasanna)
    */
-  private static class RegexUriPatternMatcher implements UriPatternMatcher {
+  static class RegexUriPatternMatcher implements UriPatternMatcher {
     private final Pattern pattern;
 
     public RegexUriPatternMatcher(String pattern) {
       this.pattern = Pattern.compile(pattern);
     }
 
+    Pattern getPattern() {
+      return pattern;
+    }
+
     public boolean matches(String uri) {
       return null != uri && this.pattern.matcher(getUri(uri)).matches();
     }
@@ -42,6 +42,7 @@ public class AllTests {
     suite.addTestSuite(ServletDispatchIntegrationTest.class);
     suite.addTestSuite(InvalidScopeBindingTest.class);
     suite.addTestSuite(ContinuingHttpServletRequestTest.class);
+    suite.addTestSuite(RequestScopeStoreTest.class);
 
     // Varargs URL mapping tests.
     suite.addTestSuite(VarargsFilterDispatchIntegrationTest.class);
@@ -54,6 +55,7 @@ public class AllTests {
     suite.addTestSuite(ExtensionSpiTest.class);
 
     suite.addTestSuite(UriPatternTypeTest.class);
+    suite.addTestSuite(UriPatternIndexTest.class);
 
     return suite;
   }
@@ -45,6 +45,7 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
 /**
@@ -282,6 +283,64 @@ public class FilterDispatchIntegrationTest extends TestCase {
     assertEquals(1, f2.calledAt);
   }
   
+  public final void testChainsAreCached() throws Exception {
+    System.setProperty("guice_filter_chain_cache_size", "1");
+    ManagedFilterPipeline pipeline;
+    FilterChainCacheStats stats;
+    try {
+      Injector injector = Guice.createInjector(new ServletModule() {
+        @Override
+        protected void configureServlets() {
+          filter("/").through(TestFilter.class);
+          filter("/nothing").through(TestFilter.class);
+          filter("/*").through(TestFilter.class);
+        }
+      });
+      pipeline = (ManagedFilterPipeline) injector.getInstance(FilterPipeline.class);
+      stats = injector.getInstance(FilterChainCacheStats.class);
+    } finally {
+      System.clearProperty("guice_filter_chain_cache_size");
+    }
+    pipeline.initPipeline(null);
+    assertTrue(stats.isEnabled());
+
+    pipeline.dispatch(newFakeHttpServletRequest(), null, newNoOpFilterChain());
+    pipeline.dispatch(newFakeHttpServletRequest(), null, newNoOpFilterChain());
+    assertEquals(4, doFilters);
+    assertEquals(1, stats.missCount());
+    assertEquals(1, stats.hitCount());
+
+    HttpServletRequest other = new HttpServletRequestWrapper(newFakeHttpServletRequest()) {
+      @Override public String getRequestURI() {
+        return "/other";
+      }
+    };
+    pipeline.dispatch(other, null, newNoOpFilterChain());
+    assertEquals(5, doFilters);
+    assertEquals(2, stats.missCount());
+    assertEquals(1, stats.evictionCount());
+  }
+
+  public final void testChainsAreNotCachedByDefault() throws Exception {
+    Injector injector = Guice.createInjector(new ServletModule() {
+      @Override
+      protected void configureServlets() {
+        filter("/*").through(TestFilter.class);
+      }
+    });
+    ManagedFilterPipeline pipeline
+        = (ManagedFilterPipeline) injector.getInstance(FilterPipeline.class);
+    pipeline.initPipeline(null);
+
+    pipeline.dispatch(newFakeHttpServletRequest(), null, newNoOpFilterChain());
+    FilterChainCacheStats stats = injector.getInstance(FilterChainCacheStats.class);
+    assertFalse(stats.isEnabled());
+    assertEquals(0, stats.missCount());
+
+    // the servlet is only looked up once every filter has passed the request on
+    assertEquals(ManagedFilterPipeline.Chain.UNRESOLVED, pipeline.getChain("/index.html").servlet);
+  }
+
   /** A filter that keeps count of when it was called by increment a counter. */
   private static class CountFilter implements Filter {
     private final AtomicInteger counter;
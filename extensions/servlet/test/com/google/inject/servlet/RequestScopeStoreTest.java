@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.common.testing.GcFinalization;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.google.inject.servlet.RequestScopeStore.Index;
+
+import junit.framework.TestCase;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Tests for {@link RequestScopeStore}.
+ */
+public class RequestScopeStoreTest extends TestCase {
+
+  public void testEqualKeysShareIndex() {
+    Index index = RequestScopeStore.indexOf(Key.get(String.class, Names.named("shared")));
+    assertSame(index, RequestScopeStore.indexOf(Key.get(String.class, Names.named("shared"))));
+    assertNotSame(index, RequestScopeStore.indexOf(Key.get(String.class, Names.named("other"))));
+  }
+
+  public void testGetAndPut() {
+    Index index = RequestScopeStore.indexOf(Key.get(String.class, Names.named("getAndPut")));
+    RequestScopeStore store = new RequestScopeStore();
+    assertNull(store.get(index));
+    store.put(index, "value");
+    assertEquals("value", store.get(index));
+    assertNull(new RequestScopeStore().get(index));
+  }
+
+  public void testKeysAreNotHeld() {
+    Key<String> key = Key.get(String.class, Names.named("notHeld"));
+    RequestScopeStore.indexOf(key);
+    WeakReference<Key<String>> keyReference = new WeakReference<Key<String>>(key);
+    key = null;
+    GcFinalization.awaitClear(keyReference);
+  }
+
+  public void testStoreKeepsIndexOfItsObjects() {
+    RequestScopeStore store = new RequestScopeStore();
+    Key<String> key = Key.get(String.class, Names.named("stored"));
+    store.put(RequestScopeStore.indexOf(key), "value");
+    WeakReference<Key<String>> keyReference = new WeakReference<Key<String>>(key);
+    key = null;
+    GcFinalization.awaitFullGc();
+    assertNotNull(keyReference.get());
+
+    // the index isn't given to other keys until the store is gone too
+    Index index = RequestScopeStore.indexOf(Key.get(String.class, Names.named("stored")));
+    assertEquals("value", store.get(index));
+  }
+}
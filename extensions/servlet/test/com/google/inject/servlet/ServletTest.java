@@ -20,11 +20,13 @@ import static com.google.inject.Asserts.assertContains;
 import static com.google.inject.Asserts.reserialize;
 import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletRequest;
 import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletResponse;
+import static com.google.inject.servlet.ServletTestUtils.newFakeHttpSession;
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
@@ -50,7 +52,12 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -332,6 +339,57 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testRequestObjectsAreNotRequestAttributes()
+      throws CreationException, IOException, ServletException {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+
+    GuiceFilter filter = new GuiceFilter();
+    final boolean[] invoked = new boolean[1];
+    FilterChain filterChain = new FilterChain() {
+      public void doFilter(ServletRequest servletRequest,
+          ServletResponse servletResponse) {
+        invoked[0] = true;
+        assertNotNull(injector.getInstance(InRequest.class));
+        assertNull(request.getAttribute(Key.get(InRequest.class).toString()));
+      }
+    };
+
+    filter.doFilter(request, null, filterChain);
+
+    assertTrue(invoked[0]);
+  }
+
+  public void testRequestObjectsMirroredInRequestAttributes()
+      throws CreationException, IOException, ServletException {
+    System.setProperty("guice_request_scope_attributes", "true");
+    final Injector injector;
+    try {
+      injector = createInjector();
+    } finally {
+      System.clearProperty("guice_request_scope_attributes");
+    }
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    final InRequest seeded = new InRequest();
+    request.setAttribute(Key.get(InRequest.class).toString(), seeded);
+
+    GuiceFilter filter = new GuiceFilter();
+    final boolean[] invoked = new boolean[1];
+    FilterChain filterChain = new FilterChain() {
+      public void doFilter(ServletRequest servletRequest,
+          ServletResponse servletResponse) {
+        invoked[0] = true;
+        assertSame(seeded, injector.getInstance(InRequest.class));
+        assertNull(injector.getInstance(IN_REQUEST_NULL_KEY));
+        assertEquals(NullObject.INSTANCE, request.getAttribute(IN_REQUEST_NULL_KEY.toString()));
+      }
+    };
+
+    filter.doFilter(request, null, filterChain);
+
+    assertTrue(invoked[0]);
+  }
+
   public void testNewSessionObject()
       throws CreationException, IOException, ServletException {
     final Injector injector = createInjector();
@@ -378,6 +436,134 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testCreatingSessionObjectDoesNotBlockOtherKeys() throws Exception {
+    final HttpSession session = newFakeHttpSession();
+    final CountDownLatch otherObjectCreated = new CountDownLatch(1);
+    final Injector injector = createInjector(new AbstractModule() {
+      @Override protected void configure() {}
+
+      @Provides @SessionScoped @Named("slow") String provideSlow(final Injector injector)
+          throws Exception {
+        // get another object of the same session in another request, while this one is created
+        Thread other = new Thread() {
+          @Override public void run() {
+            try {
+              inSessionRequest(session, new FilterChain() {
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                  injector.getInstance(InSession.class);
+                  otherObjectCreated.countDown();
+                }
+              });
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            }
+          }
+        };
+        other.start();
+        return String.valueOf(otherObjectCreated.await(10, TimeUnit.SECONDS));
+      }
+    });
+
+    final String[] slow = new String[1];
+    inSessionRequest(session, new FilterChain() {
+      public void doFilter(ServletRequest request, ServletResponse response) {
+        slow[0] = injector.getInstance(Key.get(String.class, Names.named("slow")));
+        assertSame(slow[0], injector.getInstance(Key.get(String.class, Names.named("slow"))));
+      }
+    });
+    assertEquals("true", slow[0]);
+  }
+
+  public void testMutuallyDependentSessionObjectsDoNotDeadlock() throws Exception {
+    final HttpSession session = newFakeHttpSession();
+    final Injector injector = createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(Hen.class).to(HenImpl.class).in(SessionScoped.class);
+        bind(Egg.class).to(EggImpl.class).in(SessionScoped.class);
+      }
+    });
+
+    // each request starts creating one of the objects, then needs the other
+    creatingBoth = new CyclicBarrier(2);
+    final List<Object> results = new CopyOnWriteArrayList<Object>();
+    List<Thread> threads = Lists.newArrayList();
+    for (final Class<?> type : ImmutableList.of(Hen.class, Egg.class)) {
+      Thread thread = new Thread() {
+        @Override public void run() {
+          try {
+            inSessionRequest(session, new FilterChain() {
+              public void doFilter(ServletRequest request, ServletResponse response) {
+                try {
+                  results.add(injector.getInstance(type));
+                } catch (ProvisionException e) {
+                  results.add(e);
+                }
+              }
+            });
+          } catch (Exception e) {
+            results.add(e);
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+      assertFalse("deadlocked", thread.isAlive());
+    }
+
+    // the request that closed the cycle failed, and the other created both objects
+    assertEquals(results.toString(), 2, results.size());
+    ProvisionException failure = (ProvisionException) (results.get(0) instanceof ProvisionException
+        ? results.get(0) : results.get(1));
+    assertContains(failure.getMessage(), "because it would deadlock");
+    assertTrue(session.getAttribute(Key.get(Hen.class).toString()) instanceof HenImpl);
+    assertTrue(session.getAttribute(Key.get(Egg.class).toString()) instanceof EggImpl);
+  }
+
+  static CyclicBarrier creatingBoth;
+  static final ThreadLocal<Boolean> awaitedCreatingBoth = new ThreadLocal<Boolean>();
+
+  /** Waits for the other request to start creating its object, the first time it's called. */
+  static void awaitCreatingBoth() {
+    if (awaitedCreatingBoth.get() == null) {
+      awaitedCreatingBoth.set(true);
+      try {
+        creatingBoth.await(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  interface Hen {}
+  interface Egg {}
+
+  static class HenImpl implements Hen {
+    @Inject HenImpl(Provider<Egg> egg) {
+      awaitCreatingBoth();
+      egg.get();
+    }
+  }
+
+  static class EggImpl implements Egg {
+    @Inject EggImpl(Provider<Hen> hen) {
+      awaitCreatingBoth();
+      hen.get();
+    }
+  }
+
+  private void inSessionRequest(final HttpSession session, FilterChain filterChain)
+      throws Exception {
+    HttpServletRequest request = new HttpServletRequestWrapper(newFakeHttpServletRequest()) {
+      @Override public HttpSession getSession() {
+        return session;
+      }
+    };
+    new GuiceFilter().doFilter(request, null, filterChain);
+  }
+
   public void testHttpSessionIsSerializable() throws Exception {
     final Injector injector = createInjector();
     final HttpServletRequest request = newFakeHttpServletRequest();
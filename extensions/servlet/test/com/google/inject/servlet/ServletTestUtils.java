@@ -97,7 +97,8 @@ public class ServletTestUtils {
   }  
   
   private static class FakeHttpSessionHandler implements InvocationHandler, Serializable {
-    final Map<String, Object> attributes = Maps.newHashMap();
+    // concurrent, like the attributes of real sessions
+    final Map<String, Object> attributes = Maps.newConcurrentMap();
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
       String name = method.getName();
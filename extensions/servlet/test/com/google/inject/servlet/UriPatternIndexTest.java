@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.inject.servlet.UriPatternType.REGEX;
+import static com.google.inject.servlet.UriPatternType.SERVLET;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class UriPatternIndexTest extends TestCase {
+
+  private final List<UriPatternMatcher> matchers = ImmutableList.of(
+      UriPatternType.get(SERVLET, "/public/login/*"),
+      UriPatternType.get(REGEX, "/.*/foo"),
+      UriPatternType.get(SERVLET, "/index.html"),
+      UriPatternType.get(SERVLET, "*.html"),
+      UriPatternType.get(SERVLET, "/public/*"),
+      UriPatternType.get(SERVLET, "/index.html"),
+      UriPatternType.get(REGEX, "/public/.*"),
+      UriPatternType.get(SERVLET, "*"),
+      UriPatternType.get(SERVLET, "/*"));
+
+  private final List<String> paths = ImmutableList.of("/", "", "/index.html",
+      "/index.html?q=1", "/public", "/public/", "/public/login/", "/public/login/a.html",
+      "/path/foo", "/path/foo?val=1", "/path/foo.html", "public/index.html", ".html");
+
+  public void testMatchesAreThoseOfEachPattern() {
+    UriPatternIndex index = new UriPatternIndex(matchers);
+    for (String path : paths) {
+      BitSet expected = new BitSet();
+      for (int i = 0; i < matchers.size(); i++) {
+        if (matchers.get(i).matches(path)) {
+          expected.set(i);
+        }
+      }
+      assertEquals(path, expected, index.matches(path));
+      assertEquals(path, expected.nextSetBit(0), index.firstMatch(path));
+    }
+  }
+
+  public void testFirstMatchIsInPipelineOrder() {
+    UriPatternIndex index = new UriPatternIndex(matchers.subList(0, 7));
+    assertEquals(0, index.firstMatch("/public/login/index.html"));
+    assertEquals(1, index.firstMatch("/public/foo"));
+    assertEquals(2, index.firstMatch("/index.html"));
+    assertEquals(3, index.firstMatch("/public/index.html?q=/foo"));
+    assertEquals(4, index.firstMatch("/public/"));
+    assertEquals(-1, index.firstMatch("/private/index.htm"));
+  }
+
+  public void testRegexesMatchAsTheyDoAlone() {
+    List<UriPatternMatcher> regexes = Lists.newArrayList();
+    for (String regex : ImmutableList.of("/api/(v1|v2)/users", "/api/v(\\d+)/.*", "(?i)/API/.*",
+        "/(a+)/\\1", "/a|/b", "/static/.*\\.(css|js)", "\\Q/api/v1/users\\E", "/(?<id>\\d+)",
+        "/(?:x|y)/(?=z).*", "/b", ".*")) {
+      regexes.add(UriPatternType.get(REGEX, regex));
+    }
+    regexes.add(3, UriPatternType.get(SERVLET, "/api/*"));
+    List<String> paths = ImmutableList.of("/api/v1/users", "/api/v3/x", "/API/V1", "/a/a", "/a",
+        "/b", "/static/x.css?v=1", "/42", "/x/z", "/nothing");
+
+    for (int start = 0; start < regexes.size(); start++) {
+      List<UriPatternMatcher> matchers = regexes.subList(start, regexes.size());
+      UriPatternIndex index = new UriPatternIndex(matchers);
+      for (String path : paths) {
+        BitSet expected = new BitSet();
+        for (int i = 0; i < matchers.size(); i++) {
+          if (matchers.get(i).matches(path)) {
+            expected.set(i);
+          }
+        }
+        assertEquals(path, expected, index.matches(path));
+        assertEquals(path, expected.nextSetBit(0), index.firstMatch(path));
+      }
+    }
+  }
+
+  public void testNullAndEmpty() {
+    assertEquals(-1, new UriPatternIndex(matchers).firstMatch(null));
+    assertTrue(new UriPatternIndex(matchers).matches(null).isEmpty());
+    List<UriPatternMatcher> none = Lists.newArrayList();
+    assertEquals(-1, new UriPatternIndex(none).firstMatch("/index.html"));
+    assertTrue(new UriPatternIndex(none).matches("/index.html").isEmpty());
+  }
+}